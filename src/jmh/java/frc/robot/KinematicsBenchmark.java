@@ -0,0 +1,78 @@
+package frc.robot;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.Constants.SwerveConstants.Throttle;
+import frc.robot.subsystems.subsystem_DriveTrain;
+
+/* Chassis speeds to module states as swerveDrive used to do it (WPILib) and as it does now (ModuleSetpoints) */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KinematicsBenchmark {
+    private Rotation2d m_RobotAngle;
+    private ModuleSetpoints m_Setpoints;
+    private SwerveSetpointGenerator m_Generator;
+    private double m_Input;
+
+    @Setup
+    public void setup(){
+        m_RobotAngle = Rotation2d.fromDegrees(30.0);
+        m_Setpoints = new ModuleSetpoints();
+        m_Generator = new SwerveSetpointGenerator();
+        m_Input = 0.6;
+    }
+
+    @Benchmark
+    public SwerveModuleState[] toSwerveModuleStatesAndDesaturate(){
+        SwerveModuleState[] states = SwerveConstants.kinematics.toSwerveModuleStates(
+            ChassisSpeeds.fromFieldRelativeSpeeds(2.0, 1.0, 3.0, m_RobotAngle));
+        SwerveDriveKinematics.desaturateWheelSpeeds(states, SwerveConstants.maxSpeed * 4.0);
+        return states;
+    }
+
+    @Benchmark
+    public ModuleSetpoints moduleSetpoints(){
+        m_Setpoints.fromFieldRelativeSpeeds(2.0, 1.0, 3.0, m_RobotAngle.getRadians());
+        m_Setpoints.desaturate(SwerveConstants.maxSpeed * 4.0);
+        return m_Setpoints;
+    }
+
+    @Benchmark
+    public ModuleSetpoints moduleSetpointsSecondOrder(){
+        m_Setpoints.fromFieldRelativeSpeeds(2.0, 1.0, 3.0, m_RobotAngle.getRadians(), 0.02);
+        m_Setpoints.desaturate(SwerveConstants.maxSpeed * 4.0);
+        return m_Setpoints;
+    }
+
+    /* Full reversal from top speed every call, so the generator always has to bisect */
+    @Benchmark
+    public double setpointGeneratorReversal(){
+        m_Generator.reset(2.0, 1.0, 0.0);
+        m_Generator.generate(-2.0, -1.0, 3.0, SwerveConstants.maxSpeed * 4.0, 0.02);
+        return m_Generator.getVX();
+    }
+
+    @Benchmark
+    public double setThrottleLinear(){
+        return subsystem_DriveTrain.applyThrottle(Throttle.LINEAR, m_Input);
+    }
+
+    @Benchmark
+    public double setThrottleNonLinear(){
+        return subsystem_DriveTrain.applyThrottle(Throttle.NONLINEAR, m_Input);
+    }
+}
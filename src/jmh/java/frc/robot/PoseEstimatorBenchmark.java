@@ -0,0 +1,72 @@
+package frc.robot;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * SwerveDrivePoseEstimator.update at the odometry thread's rate, with and without a vision measurement
+ * every 10th update. updateWithTime is used so no HAL timestamp is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PoseEstimatorBenchmark {
+    private static final double kDt = 1.0 / SwerveConstants.odometryFrequency;
+
+    private SwerveDrivePoseEstimator m_PoseEstimator;
+    private SwerveModulePosition[] m_Positions;
+    private Pose2d m_VisionPose;
+    private double m_Time;
+    private int m_Count;
+
+    @Setup
+    public void setup(){
+        m_Positions = new SwerveModulePosition[ModuleSetpoints.kNumModules];
+        for(int i = 0; i < m_Positions.length; i++){
+            m_Positions[i] = new SwerveModulePosition(0.0, Rotation2d.fromDegrees(45.0));
+        }
+        m_PoseEstimator = new SwerveDrivePoseEstimator(SwerveConstants.kinematics,
+                                                      new Rotation2d(),
+                                                      m_Positions,
+                                                      new Pose2d(),
+                                                      VecBuilder.fill(0.7, 0.7, 0.1),
+                                                      VecBuilder.fill(0.3, 0.3, 0.9));
+        m_VisionPose = new Pose2d(0.1, 0.05, Rotation2d.fromDegrees(1.0));
+    }
+
+    private Pose2d step(){
+        m_Time += kDt;
+        for(SwerveModulePosition position : m_Positions){
+            position.distanceMeters += 0.01;
+        }
+        return m_PoseEstimator.updateWithTime(m_Time, Rotation2d.fromDegrees(m_Time), m_Positions);
+    }
+
+    @Benchmark
+    public Pose2d update(){
+        return step();
+    }
+
+    @Benchmark
+    public Pose2d updateWithVision(){
+        Pose2d pose = step();
+        if(++m_Count % 10 == 0){
+            m_PoseEstimator.addVisionMeasurement(m_VisionPose, m_Time - 0.05);
+        }
+        return pose;
+    }
+}
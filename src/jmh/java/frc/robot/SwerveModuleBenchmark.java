@@ -0,0 +1,60 @@
+package frc.robot;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/* SwerveModule.optimize and the Falcon unit conversions, none of these touch hardware */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwerveModuleBenchmark {
+    private SwerveModuleState m_DesiredState;
+    private Rotation2d m_CurrentAngle;
+    private double[] m_Optimized;
+    private double m_Value;
+
+    @Setup
+    public void setup(){
+        // 160 degrees away from the current angle so the flip branch is taken
+        m_DesiredState = new SwerveModuleState(1.5, Rotation2d.fromDegrees(170.0));
+        m_CurrentAngle = Rotation2d.fromDegrees(370.0);
+        m_Optimized = new double[2];
+        m_Value = 12.34;
+    }
+
+    @Benchmark
+    public SwerveModuleState optimize(){
+        return SwerveModule.optimize(m_DesiredState, m_CurrentAngle);
+    }
+
+    @Benchmark
+    public double optimizePrimitive(){
+        SwerveModule.optimize(1.5, 170.0, 370.0, m_Optimized);
+        return m_Optimized[1];
+    }
+
+    @Benchmark
+    public double falconToMPS(){
+        return SwerveModule.falconToMPS(m_Value);
+    }
+
+    @Benchmark
+    public double mpsToFalcon(){
+        return SwerveModule.mpsToFalcon(m_Value);
+    }
+
+    @Benchmark
+    public double degreesToFalcon(){
+        return SwerveModule.degreesToFalcon(m_Value);
+    }
+}
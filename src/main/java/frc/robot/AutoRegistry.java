@@ -0,0 +1,117 @@
+package frc.robot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.commands.command_DriveAuton;
+import frc.robot.subsystems.subsystem_DriveTrain;
+
+/**
+ * Every Choreo trajectory in deploy/choreo as a ready to run auto routine. The trajectories are loaded and
+ * resampled on a background thread as soon as the robot boots, and {@link #poll()} (called while disabled)
+ * wraps each finished one in its command and adds it to the chooser. Only finished routines can be
+ * picked, so {@link #getSelected()} at autonomousInit is a lookup with nothing left to build.
+ */
+public class AutoRegistry {
+    private static final int kPollStage = LoopProfiler.register("AutoRegistry.poll");
+
+    private SendableChooser<Command> m_Chooser;
+    private subsystem_DriveTrain m_DriveTrain;
+    private ExecutorService m_Executor;
+    private List<String> m_Names;
+    private List<CompletableFuture<UniformTrajectory>> m_Trajectories;
+
+    public AutoRegistry(subsystem_DriveTrain driveTrain){
+        m_DriveTrain = driveTrain;
+        m_Chooser = new SendableChooser<>();
+        m_Chooser.setDefaultOption("None", Commands.none());
+        SmartDashboard.putData("Auto", m_Chooser);
+
+        m_Executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AutoRegistry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_Names = new ArrayList<>();
+        m_Trajectories = new ArrayList<>();
+        for(String name : findTrajectories()){
+            m_Names.add(name);
+            m_Trajectories.add(CompletableFuture.supplyAsync(() -> {
+                try{
+                    return UniformTrajectory.fromBinary(BinaryTrajectory.load(name), UniformTrajectory.kDefaultDt);
+                } catch(Exception e){
+                    DriverStation.reportError("Could not load auto " + name + ": " + e.getMessage(), false);
+                    return null;
+                }
+            }, m_Executor));
+        }
+        m_Executor.shutdown();
+    }
+
+    /* Trajectory names in deploy/choreo, without Choreo's split segments (name.1.traj) */
+    private static TreeSet<String> findTrajectories(){
+        TreeSet<String> names = new TreeSet<>();
+        List<File> directories = new ArrayList<>();
+        directories.add(new File(Filesystem.getDeployDirectory(), "choreo"));
+        if(RobotBase.isSimulation()){
+            directories.add(new File(Filesystem.getOperatingDirectory(), "build/generated/deploy/choreo"));
+        }
+        for(File directory : directories){
+            File[] files = directory.listFiles();
+            if(files == null){
+                continue;
+            }
+            for(File file : files){
+                String fileName = file.getName();
+                int extension = fileName.lastIndexOf('.');
+                if(extension <= 0){
+                    continue;
+                }
+                String suffix = fileName.substring(extension);
+                String name = fileName.substring(0, extension);
+                if((suffix.equals(".traj") || suffix.equals(".bin")) && name.indexOf('.') < 0){
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /* Adds the routines whose trajectories finished loading since the last call, call from the robot thread */
+    public void poll(){
+        LoopProfiler.start(kPollStage);
+        for(int i = m_Trajectories.size() - 1; i >= 0; i--){
+            if(!m_Trajectories.get(i).isDone()){
+                continue;
+            }
+            UniformTrajectory trajectory = m_Trajectories.get(i).join();
+            if(trajectory != null){
+                m_Chooser.addOption(m_Names.get(i), new command_DriveAuton(m_DriveTrain, () -> true, trajectory));
+            }
+            m_Trajectories.remove(i);
+            m_Names.remove(i);
+        }
+        LoopProfiler.stop(kPollStage);
+    }
+
+    /* True once every routine found at boot is in the chooser or failed to load */
+    public boolean isReady(){
+        return m_Trajectories.isEmpty();
+    }
+
+    public Command getSelected(){
+        return m_Chooser.getSelected();
+    }
+}
@@ -0,0 +1,137 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+
+/**
+ * Choreo trajectory loaded from the binary file generated at build time by the generateTrajectoryBinaries
+ * Gradle task. The file is memory mapped and copied straight into primitive arrays, no JSON parsing.
+ */
+public class BinaryTrajectory {
+    private static final int kMagic = 0x4A425254;
+    private static final int kVersion = 1;
+    private static final int kHeaderBytes = 16;
+
+    private double[] m_X;
+    private double[] m_Y;
+    private double[] m_Heading;
+    private double[] m_VX;
+    private double[] m_VY;
+    private double[] m_Omega;
+    private double[] m_Time;
+
+    private BinaryTrajectory(int count){
+        m_X = new double[count];
+        m_Y = new double[count];
+        m_Heading = new double[count];
+        m_VX = new double[count];
+        m_VY = new double[count];
+        m_Omega = new double[count];
+        m_Time = new double[count];
+    }
+
+    /**
+     * Loads deploy/choreo/&lt;name&gt;.bin. In simulation the deploy directory is the source tree, so the
+     * build output is checked instead.
+     *
+     * @param name trajectory name without extension, e.g. "testypathy"
+     */
+    public static BinaryTrajectory load(String name) throws IOException {
+        File file = new File(Filesystem.getDeployDirectory(), "choreo/" + name + ".bin");
+        if(!file.exists() && RobotBase.isSimulation()){
+            file = new File(Filesystem.getOperatingDirectory(), "build/generated/deploy/choreo/" + name + ".bin");
+        }
+        return fromFile(file.toPath());
+    }
+
+    public static BinaryTrajectory fromFile(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.getInt() != kMagic || buffer.getInt() != kVersion){
+                throw new IOException("Not a binary trajectory: " + path);
+            }
+            int count = buffer.getInt();
+            buffer.position(kHeaderBytes);
+            if(count <= 0 || buffer.remaining() < count * 7 * Double.BYTES){
+                throw new IOException("Truncated binary trajectory: " + path);
+            }
+
+            BinaryTrajectory trajectory = new BinaryTrajectory(count);
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            doubles.get(trajectory.m_X);
+            doubles.get(trajectory.m_Y);
+            doubles.get(trajectory.m_Heading);
+            doubles.get(trajectory.m_VX);
+            doubles.get(trajectory.m_VY);
+            doubles.get(trajectory.m_Omega);
+            doubles.get(trajectory.m_Time);
+            return trajectory;
+        }
+    }
+
+    public int size(){
+        return m_Time.length;
+    }
+
+    public double getTotalTimeSeconds(){
+        return m_Time[m_Time.length - 1];
+    }
+
+    public Pose2d getInitialPose(){
+        return new Pose2d(m_X[0], m_Y[0], new Rotation2d(m_Heading[0]));
+    }
+
+    /* Binary search for the surrounding samples, then linear interpolation into out */
+    public void sample(double timeSeconds, TrajectorySample out){
+        int last = m_Time.length - 1;
+        if(timeSeconds <= m_Time[0]){
+            copy(0, out);
+            return;
+        }
+        if(timeSeconds >= m_Time[last]){
+            copy(last, out);
+            return;
+        }
+        int low = 0;
+        int high = last;
+        while(high - low > 1){
+            int mid = (low + high) >>> 1;
+            if(m_Time[mid] <= timeSeconds){
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        double t = (timeSeconds - m_Time[low]) / (m_Time[high] - m_Time[low]);
+        out.timeSeconds = timeSeconds;
+        out.xMeters = MathUtil.interpolate(m_X[low], m_X[high], t);
+        out.yMeters = MathUtil.interpolate(m_Y[low], m_Y[high], t);
+        out.headingRadians = m_Heading[low] + MathUtil.angleModulus(m_Heading[high] - m_Heading[low]) * t;
+        out.vxMetersPerSecond = MathUtil.interpolate(m_VX[low], m_VX[high], t);
+        out.vyMetersPerSecond = MathUtil.interpolate(m_VY[low], m_VY[high], t);
+        out.omegaRadiansPerSecond = MathUtil.interpolate(m_Omega[low], m_Omega[high], t);
+    }
+
+    private void copy(int index, TrajectorySample out){
+        out.timeSeconds = m_Time[index];
+        out.xMeters = m_X[index];
+        out.yMeters = m_Y[index];
+        out.headingRadians = m_Heading[index];
+        out.vxMetersPerSecond = m_VX[index];
+        out.vyMetersPerSecond = m_VY[index];
+        out.omegaRadiansPerSecond = m_Omega[index];
+    }
+}
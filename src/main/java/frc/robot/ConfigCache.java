@@ -0,0 +1,91 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import com.ctre.phoenix6.configs.ParentConfiguration;
+import com.ctre.phoenix6.hardware.ParentDevice;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Remembers a CRC of the last configuration successfully applied to each device, keyed by CAN bus, device
+ * type and ID (Phoenix 6 does not expose a serial number). On a hit the config only has to be read back and
+ * compared, on a miss we know the config changed and apply it without the extra readback first.
+ */
+public class ConfigCache {
+    private static final String kFileName = "device_configs.properties";
+
+    private File m_File;
+    private Properties m_Hashes; // synchronized, safe to touch from every configurator thread
+    private volatile boolean m_Dirty;
+
+    public ConfigCache(){
+        this(new File(Filesystem.getOperatingDirectory(), kFileName));
+    }
+
+    public ConfigCache(File file){
+        m_File = file;
+        m_Hashes = new Properties();
+        if(m_File.exists()){
+            try(InputStream in = new FileInputStream(m_File)){
+                m_Hashes.load(in);
+            } catch(IOException e){
+                // A bad cache only costs us the readback shortcut
+                m_Hashes.clear();
+            }
+        }
+    }
+
+    public static String key(ParentDevice device){
+        return device.getNetwork() + "/" + device.getClass().getSimpleName() + "/" + device.getDeviceID();
+    }
+
+    public static String hash(ParentConfiguration config){
+        CRC32 crc = new CRC32();
+        crc.update(config.serialize().getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /* True if this exact config was the last one applied to the device */
+    public boolean matches(String key, String hash){
+        return hash.equals(m_Hashes.getProperty(key));
+    }
+
+    public void put(String key, String hash){
+        if(!hash.equals(m_Hashes.setProperty(key, hash))){
+            m_Dirty = true;
+        }
+    }
+
+    public void remove(String key){
+        if(m_Hashes.remove(key) != null){
+            m_Dirty = true;
+        }
+    }
+
+    /* Writes the cache if anything changed, through a temporary file so a brownout cannot leave it half written */
+    public void save(){
+        if(!m_Dirty){
+            return;
+        }
+        File temp = new File(m_File.getPath() + ".tmp");
+        try(OutputStream out = new FileOutputStream(temp)){
+            m_Hashes.store(out, "Device config hashes, safe to delete");
+        } catch(IOException e){
+            DriverStation.reportWarning("Could not write " + temp + ": " + e.getMessage(), false);
+            return;
+        }
+        if(temp.renameTo(m_File)){
+            m_Dirty = false;
+        }
+    }
+}
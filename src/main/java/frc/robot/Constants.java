@@ -4,11 +4,14 @@
 
 package frc.robot;
 
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.Vector;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 // import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
@@ -40,6 +43,26 @@ public final class Constants {
                                                                   new Rotation3d(0, 0, 0));
 
     public static final AprilTagFieldLayout kTagLayout = AprilTagFields.k2024Crescendo.loadAprilTagLayoutField();
+
+    /* How often the vision thread checks the cameras for a new result */
+    public static final double kPollPeriod = 0.01; // seconds
+
+    /* Every camera fused into the pose estimate, names and robot-to-camera transforms are index matched */
+    public static final String[] kCameraNames = { kCameraName };
+    public static final Transform3d[] kRobotToCams = { kRobotToCam };
+
+    /* Base vision trust (x m, y m, theta rad), scaled up with tag distance and ambiguity */
+    public static final Vector<N3> kSingleTagStdDevs = VecBuilder.fill(1.0, 1.0, 3.0);
+    public static final Vector<N3> kMultiTagStdDevs = VecBuilder.fill(0.3, 0.3, 0.9);
+    public static final double kDistanceScale = 30.0; // std devs grow by (1 + d^2 / kDistanceScale)
+
+    /* Outlier rejection */
+    public static final double kMaxSingleTagDistance = 4.0; // meters
+    public static final double kMaxAmbiguity = threshold;
+    public static final double kMaxHeight = 0.5;            // meters off the carpet
+    public static final double kFieldMargin = 0.5;          // meters outside the field walls
+    public static final double kMaxPoseJump = 1.0;          // meters from the current estimate
+    public static final int kMaxConsecutiveJumps = 10;      // accept multi-tag jumps after this many to recover a bad pose
   
   }
 
@@ -56,7 +79,7 @@ public final class Constants {
 
     // Drivetrain Constants
     public static final double openLoopRamp = 0.25;
-    public static final double closedLoopRamp = 0.375;
+    public static final double closedLoopRamp = 0.0; // the setpoint generator limits acceleration, a ramp would only lag the kA feedforward
 
     public static final double driveGearRatio = 6.75;
     public static final double angleGearRatio = 150.0 / 7.0;
@@ -69,6 +92,10 @@ public final class Constants {
     public static final Translation2d backRight = new Translation2d(-Units.inchesToMeters(11.375), -Units.inchesToMeters(11.375));
     
     public static final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(frontLeft, frontRight, backLeft, backRight);
+
+    /* Pose estimator trust, x m, y m, heading rad. Vision measurements normally bring their own std devs. */
+    public static final Vector<N3> stateStdDevs = VecBuilder.fill(0.7, 0.7, 0.1);
+    public static final Vector<N3> visionStdDevs = VecBuilder.fill(0.3, 0.3, 0.9);
     
     //Change to non-linear throttle for finer tuned movements
     public static enum Throttle{
@@ -111,6 +138,7 @@ public final class Constants {
     public static final double angleKI = 0.0;
     public static final double angleKD = 0.0;
     public static final double angleKF = 0.0;
+    public static final double angleKV = 0.12; // volts per rotor rotation per second, Falcon free speed at 12 V
 
     /*Swerve Angle Current Limit Config*/
     public static final boolean angleEnableCurrentLimit = true;
@@ -124,6 +152,12 @@ public final class Constants {
     public static final double driveKD = 0.0;
     public static final double driveKF = 0.0;
 
+    /* Drive velocity closed loop on the TalonFX, VelocityTorqueCurrentFOC needs a Phoenix Pro license.
+    Torque current gains are in amps, kA is derived from robotMass */
+    public static final boolean driveTorqueCurrentFOC = false;
+    public static final double driveKSAmps = 2.0;
+    public static final double driveKPAmps = 5.0; // amps per rotor rotation per second of error
+
     /*Swerve Drive Current Limit Config*/
     public static final boolean driveEnableCurrentLimit = true;
     public static final int driveContinuousCurrentLimit = 30;
@@ -139,6 +173,43 @@ public final class Constants {
     public static final double maxAngularVelocity = 360.0 * 1.25 * DEG_TO_RAD / 4.0; // rad per sec
     public static final boolean isFieldRelative = true;
     public static final boolean isOpenLoop = false;
+
+    /* Simulated steer inertia (module, wheel and gearing) seen at the steer output */
+    public static final double steerSimMOI = 0.004; // kg m^2
+
+    /* Odometry thread rate, all drive/steer position signals and the gyro yaw are sampled together at this rate */
+    public static final double odometryFrequency = 250.0; // Hz
+
+    /* Boot time limits, configs are applied to every device at once and then we wait for positions to report */
+    public static final double configTimeout = 2.0;      // seconds for all config jobs
+    public static final double deviceReadyTimeout = 1.0; // seconds for the first position frames
+
+    /* Optional drive loop on its own real-time Notifier, commands only hand off their latest target */
+    public static final boolean useFastDriveLoop = false;
+    public static final double driveLoopPeriod = 0.005;    // seconds, 200 Hz
+    public static final int driveLoopPriority = 2;         // RT priority, above the odometry thread
+    public static final double driveTargetTimeout = 0.1;   // seconds before a target nobody refreshes is ignored
+
+    /* Discretize chassis speeds over the loop period and feed forward the module steer rate */
+    public static final boolean useSecondOrderKinematics = true;
+
+    /* Setpoint generator, limits each loop's change to what the modules can do at the drive current limit */
+    public static final boolean useSetpointGenerator = true;
+    public static final double robotMass = 56.0;           // kg, with bumpers and battery
+    public static final double maxSteerVelocity = 1080.0;  // deg per sec, below the ~1780 free speed of the steer
+
+    /* Steer closed loop on the TalonFX, fed by the module's CANcoder. FusedCANcoder needs a Phoenix Pro
+    license, without one use RemoteCANcoder (false) */
+    public static final boolean steerFusedCANcoder = true;
+    public static final double angleMotionMagicAcceleration = 40.0; // module rotations per sec^2
+
+    /* Auto orient heading controller, radians, profiled to the DPAD heading */
+    public static final double headingKP = 5.0;
+    public static final double headingKD = 0.0;
+    public static final double headingMaxVelocity = maxAngularVelocity * 4.0; // rad per sec
+    public static final double headingMaxAcceleration = 4.0 * Math.PI;        // rad per sec^2
+    public static final double headingTolerance = 1.0 * DEG_TO_RAD;
+    public static final int headingSettleLoops = 4;                           // loops at the goal before releasing
   }
 
   public static final class DPAD{
@@ -169,12 +240,22 @@ public final class Constants {
         case RIGHT:        return 90;
         case DOWN_RIGHT:   return 135;
         case DOWN:         return 180;
-        case DOWN_LEFT:    return 0;
+        case DOWN_LEFT:    return 225;
         case LEFT:         return 270;
         case FRONT_LEFT:   return 315;
         default:           return -1;
       }
     }
+
+    /* Controller POV angle to orientation, -1 (released) is NON_ORIENTED */
+    public static ORIENTATION fromPOV(int pov){
+      for(ORIENTATION o : ORIENTATION.values()){
+        if(o != ORIENTATION.NON_ORIENTED && value(o) == pov){
+          return o;
+        }
+      }
+      return ORIENTATION.NON_ORIENTED;
+    }
     
     // public int value(NODE_LEVEL n){
     //   switch(n){
@@ -251,6 +332,16 @@ public final class Constants {
       0.0, 
       AngleKD, 
       new TrapezoidProfile.Constraints(MaxAngularSpeedMetersPerSecond, MaxAngularAccelMetersPerSecondSquared));
+
+    /* On the fly pathfinding, see FieldGrid and Pathfinder */
+    public static final double PathfindingCellSize = 0.1;     // meters
+    public static final double PathfindingRobotRadius = 0.55; // meters, half the bumper diagonal plus margin
+    public static final String PathfindingObstacleFile = "pathfinding/obstacles.csv";
+
+    /* Drive to scoring position, facing the speaker tag from ScoringDistance in front of it */
+    public static final int ScoringTagBlue = 7;
+    public static final int ScoringTagRed = 4;
+    public static final double ScoringDistance = 1.6; // meters
 }
 
   public static class ControllerConstants{
@@ -0,0 +1,207 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.ParentConfiguration;
+import com.ctre.phoenix6.configs.Pigeon2Configuration;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Applies device configurations concurrently instead of one device after another. Each job applies a full
+ * configuration (a full apply overwrites every field, so no factory default pass is needed), reads it back
+ * and compares every field HardwareConfig sets, and retries up to {@link #kMaxAttempts} times if either step fails.
+ * Jobs start as soon as they are added, {@link #awaitAll(double)} waits for everything queued so far.
+ *
+ * <p>If the {@link ConfigCache} says a device already has this config, the job reads it back first and only
+ * applies when the readback differs, so a normal boot is one read per device instead of a write and a read.
+ */
+public class DeviceConfigurator {
+    private static final int kThreads = 6;
+    private static final int kMaxAttempts = 3;
+    private static final double kApplyTimeout = 0.1;  // seconds per apply or readback
+    private static final double kTolerance = 1.0e-3; // configs are stored as floats on the device
+
+    private ExecutorService m_Executor;
+    private ConfigCache m_Cache;
+    private List<String> m_Names;
+    private List<Future<Boolean>> m_Jobs;
+
+    public DeviceConfigurator(){
+        m_Executor = Executors.newFixedThreadPool(kThreads, runnable -> {
+            Thread thread = new Thread(runnable, "DeviceConfigurator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_Cache = new ConfigCache();
+        m_Names = new ArrayList<>();
+        m_Jobs = new ArrayList<>();
+    }
+
+    /**
+     * Queues a job that runs {@code action} and then {@code verify}, retrying both until they succeed.
+     *
+     * @param name device name used when reporting a failure
+     * @param action the CAN transaction, should use a bounded timeout
+     * @param verify true if the device is in the expected state
+     */
+    public void add(String name, Supplier<StatusCode> action, BooleanSupplier verify){
+        m_Names.add(name);
+        m_Jobs.add(m_Executor.submit(() -> {
+            for(int attempt = 0; attempt < kMaxAttempts; attempt++){
+                if(action.get().isOK() && verify.getAsBoolean()){
+                    return true;
+                }
+            }
+            return false;
+        }));
+    }
+
+    /* Like add(), but skips the apply when the cache and the readback both say the device is already configured */
+    private void addCached(String name, ParentDevice device, ParentConfiguration config, Supplier<StatusCode> apply, BooleanSupplier verify){
+        String key = ConfigCache.key(device);
+        String hash = ConfigCache.hash(config);
+        m_Names.add(name);
+        m_Jobs.add(m_Executor.submit(() -> {
+            if(m_Cache.matches(key, hash) && verify.getAsBoolean()){
+                return true;
+            }
+            for(int attempt = 0; attempt < kMaxAttempts; attempt++){
+                if(apply.get().isOK() && verify.getAsBoolean()){
+                    m_Cache.put(key, hash);
+                    return true;
+                }
+            }
+            m_Cache.remove(key);
+            return false;
+        }));
+    }
+
+    public void addTalonFX(String name, TalonFX device, TalonFXConfiguration config){
+        addCached(name, device, config, () -> device.getConfigurator().apply(config, kApplyTimeout), () -> {
+            TalonFXConfiguration readback = new TalonFXConfiguration();
+            return device.getConfigurator().refresh(readback, kApplyTimeout).isOK() && matches(config, readback);
+        });
+    }
+
+    public void addCANcoder(String name, CANcoder device, CANcoderConfiguration config){
+        addCached(name, device, config, () -> device.getConfigurator().apply(config, kApplyTimeout), () -> {
+            CANcoderConfiguration readback = new CANcoderConfiguration();
+            return device.getConfigurator().refresh(readback, kApplyTimeout).isOK() && matches(config, readback);
+        });
+    }
+
+    public void addPigeon2(String name, Pigeon2 device, Pigeon2Configuration config){
+        addCached(name, device, config, () -> device.getConfigurator().apply(config, kApplyTimeout), () -> {
+            Pigeon2Configuration readback = new Pigeon2Configuration();
+            return device.getConfigurator().refresh(readback, kApplyTimeout).isOK() && matches(config, readback);
+        });
+    }
+
+    /**
+     * Waits for every queued job, reporting the devices that could not be configured or verified.
+     *
+     * @param timeoutSeconds total time to wait for all jobs
+     * @return true if every job succeeded
+     */
+    public boolean awaitAll(double timeoutSeconds){
+        long deadline = System.nanoTime() + (long)(timeoutSeconds * 1.0e9);
+        boolean allOK = true;
+        for(int i = 0; i < m_Jobs.size(); i++){
+            boolean ok;
+            try{
+                ok = m_Jobs.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch(TimeoutException | ExecutionException e){
+                ok = false;
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                ok = false;
+            }
+            if(!ok){
+                DriverStation.reportError("Failed to configure " + m_Names.get(i) + " after " + kMaxAttempts + " attempts", false);
+                allOK = false;
+            }
+        }
+        m_Names.clear();
+        m_Jobs.clear();
+        m_Cache.save();
+        return allOK;
+    }
+
+    /* Stops the worker threads once configuration is done, jobs still running are left to finish */
+    public void shutdown(){
+        m_Executor.shutdown();
+    }
+
+    private static boolean matches(TalonFXConfiguration expected, TalonFXConfiguration actual){
+        return near(expected.Slot0.kP, actual.Slot0.kP)
+               && near(expected.Slot0.kI, actual.Slot0.kI)
+               && near(expected.Slot0.kD, actual.Slot0.kD)
+               && near(expected.Slot0.kS, actual.Slot0.kS)
+               && near(expected.Slot0.kV, actual.Slot0.kV)
+               && near(expected.Slot0.kA, actual.Slot0.kA)
+               && near(expected.Slot1.kP, actual.Slot1.kP)
+               && near(expected.Slot1.kI, actual.Slot1.kI)
+               && near(expected.Slot1.kD, actual.Slot1.kD)
+               && near(expected.Slot1.kS, actual.Slot1.kS)
+               && near(expected.Slot1.kV, actual.Slot1.kV)
+               && near(expected.Slot1.kA, actual.Slot1.kA)
+               && expected.MotorOutput.Inverted == actual.MotorOutput.Inverted
+               && expected.MotorOutput.NeutralMode == actual.MotorOutput.NeutralMode
+               && expected.CurrentLimits.SupplyCurrentLimitEnable == actual.CurrentLimits.SupplyCurrentLimitEnable
+               && near(expected.CurrentLimits.SupplyCurrentLimit, actual.CurrentLimits.SupplyCurrentLimit)
+               && near(expected.CurrentLimits.SupplyCurrentThreshold, actual.CurrentLimits.SupplyCurrentThreshold)
+               && near(expected.CurrentLimits.SupplyTimeThreshold, actual.CurrentLimits.SupplyTimeThreshold)
+               && near(expected.TorqueCurrent.PeakForwardTorqueCurrent, actual.TorqueCurrent.PeakForwardTorqueCurrent)
+               && near(expected.TorqueCurrent.PeakReverseTorqueCurrent, actual.TorqueCurrent.PeakReverseTorqueCurrent)
+               && near(expected.Voltage.PeakForwardVoltage, actual.Voltage.PeakForwardVoltage)
+               && near(expected.Voltage.PeakReverseVoltage, actual.Voltage.PeakReverseVoltage)
+               && near(expected.OpenLoopRamps.VoltageOpenLoopRampPeriod, actual.OpenLoopRamps.VoltageOpenLoopRampPeriod)
+               && near(expected.ClosedLoopRamps.VoltageClosedLoopRampPeriod, actual.ClosedLoopRamps.VoltageClosedLoopRampPeriod)
+               && near(expected.Feedback.SensorToMechanismRatio, actual.Feedback.SensorToMechanismRatio)
+               && near(expected.Feedback.RotorToSensorRatio, actual.Feedback.RotorToSensorRatio)
+               && expected.Feedback.FeedbackSensorSource == actual.Feedback.FeedbackSensorSource
+               && expected.Feedback.FeedbackRemoteSensorID == actual.Feedback.FeedbackRemoteSensorID
+               && expected.ClosedLoopGeneral.ContinuousWrap == actual.ClosedLoopGeneral.ContinuousWrap
+               && near(expected.MotionMagic.MotionMagicCruiseVelocity, actual.MotionMagic.MotionMagicCruiseVelocity)
+               && near(expected.MotionMagic.MotionMagicAcceleration, actual.MotionMagic.MotionMagicAcceleration);
+    }
+
+    private static boolean matches(CANcoderConfiguration expected, CANcoderConfiguration actual){
+        return near(expected.MagnetSensor.MagnetOffset, actual.MagnetSensor.MagnetOffset)
+               && expected.MagnetSensor.SensorDirection == actual.MagnetSensor.SensorDirection
+               && expected.MagnetSensor.AbsoluteSensorRange == actual.MagnetSensor.AbsoluteSensorRange;
+    }
+
+    private static boolean matches(Pigeon2Configuration expected, Pigeon2Configuration actual){
+        return near(expected.MountPose.MountPoseYaw, actual.MountPose.MountPoseYaw)
+               && near(expected.MountPose.MountPosePitch, actual.MountPose.MountPosePitch)
+               && near(expected.MountPose.MountPoseRoll, actual.MountPose.MountPoseRoll)
+               && near(expected.GyroTrim.GyroScalarX, actual.GyroTrim.GyroScalarX)
+               && near(expected.GyroTrim.GyroScalarY, actual.GyroTrim.GyroScalarY)
+               && near(expected.GyroTrim.GyroScalarZ, actual.GyroTrim.GyroScalarZ)
+               && expected.Pigeon2Features.EnableCompass == actual.Pigeon2Features.EnableCompass
+               && expected.Pigeon2Features.DisableTemperatureCompensation == actual.Pigeon2Features.DisableTemperatureCompensation
+               && expected.Pigeon2Features.DisableNoMotionCalibration == actual.Pigeon2Features.DisableNoMotionCalibration;
+    }
+
+    private static boolean near(double expected, double actual){
+        return Math.abs(expected - actual) <= kTolerance * Math.max(1.0, Math.abs(expected));
+    }
+}
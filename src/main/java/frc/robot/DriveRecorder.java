@@ -0,0 +1,268 @@
+package frc.robot;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.util.datalog.StructArrayLogEntry;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Records drivetrain inputs and outputs to a .wpilog file. Producers copy fixed size records into a
+ * bounded ring buffer and return immediately, a background thread drains the ring into the DataLog, so
+ * disk I/O never runs on the robot loop or the odometry thread. If the writer falls behind, new records
+ * are dropped and counted rather than blocking the producer. A new file is started for every FMS match,
+ * and before each new file the oldest logs are deleted so at most {@link #kMaxLogFiles} files and
+ * {@link #kMaxLogBytes} bytes stay on the roboRIO.
+ */
+public class DriveRecorder {
+    /* Record types, the payload layout of each is listed next to it */
+    public static final int kOdometry = 0; // yaw deg, then per module: distance m, angle deg, velocity m/s
+    public static final int kCommand = 1;  // per module: desired speed m/s, desired angle deg, applied drive volts
+    public static final int kPose = 2;     // x m, y m, heading rad
+    public static final int kVision = 3;   // x m, y m, heading rad, std devs x m, y m, heading rad, timestamped at capture
+    public static final int kReset = 4;    // x m, y m, heading rad the pose estimator was reset to
+
+    public static final int kOdometrySize = 1 + ModuleSetpoints.kNumModules * 3;
+    public static final int kCommandSize = ModuleSetpoints.kNumModules * 3;
+    public static final int kPoseSize = 3;
+    public static final int kVisionSize = 6;
+
+    private static final int kMaxLogFiles = 30;
+    private static final long kMaxLogBytes = 200L * 1024 * 1024; // leaves most of the roboRIO's flash free
+
+    private static final int kCapacity = 2048;
+    private static final int kHeaderSize = 2; // type, timestamp
+    private static final int kRecordSize = kHeaderSize + kOdometrySize;
+
+    private final Object m_Lock = new Object();
+    private double[] m_Ring;
+    private int m_Head;
+    private int m_Count;
+    private long m_Dropped;
+    private volatile int m_Muted; // one bit per record type
+
+    private double[] m_Drain;
+    private Thread m_Writer;
+
+    /* Only touched by the writer thread */
+    private DataLog m_Log;
+    private String m_MatchKey;
+    private DoubleLogEntry m_YawEntry;
+    private DoubleArrayLogEntry m_DistanceEntry;
+    private DoubleArrayLogEntry m_AngleEntry;
+    private DoubleArrayLogEntry m_VelocityEntry;
+    private StructArrayLogEntry<SwerveModuleState> m_DesiredStatesEntry;
+    private DoubleArrayLogEntry m_AppliedVoltsEntry;
+    private StructLogEntry<Pose2d> m_PoseEntry;
+    private DoubleArrayLogEntry m_VisionEntry;
+    private StructLogEntry<Pose2d> m_ResetEntry;
+    private IntegerLogEntry m_DroppedEntry;
+
+    private double[] m_Distances;
+    private double[] m_Angles;
+    private double[] m_Velocities;
+    private double[] m_AppliedVolts;
+    private SwerveModuleState[] m_DesiredStates;
+    private double[] m_Vision;
+
+    public DriveRecorder(){
+        m_Ring = new double[kCapacity * kRecordSize];
+        m_Drain = new double[kCapacity * kRecordSize];
+
+        m_Distances = new double[ModuleSetpoints.kNumModules];
+        m_Angles = new double[ModuleSetpoints.kNumModules];
+        m_Velocities = new double[ModuleSetpoints.kNumModules];
+        m_AppliedVolts = new double[ModuleSetpoints.kNumModules];
+        m_DesiredStates = new SwerveModuleState[ModuleSetpoints.kNumModules];
+        m_Vision = new double[kVisionSize];
+
+        m_Writer = new Thread(this::writeLoop, "DriveRecorder");
+        m_Writer.setDaemon(true);
+    }
+
+    public void start(){
+        m_Writer.start();
+    }
+
+    /* Stops the writer after it wrote out what is left in the ring, then closes the file */
+    public void close(){
+        m_Writer.interrupt();
+        try{
+            m_Writer.join();
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies one record into the ring buffer. Safe to call from any thread, never blocks on I/O.
+     *
+     * @param type one of kOdometry, kCommand, kPose, kVision or kReset
+     * @param timestamp FPGA timestamp in seconds
+     * @param values payload, laid out as described for the record type
+     */
+    public void record(int type, double timestamp, double[] values){
+        if((m_Muted & (1 << type)) != 0){
+            return;
+        }
+        synchronized(m_Lock){
+            if(m_Count == kCapacity){
+                m_Dropped++;
+                return;
+            }
+            int offset = ((m_Head + m_Count) % kCapacity) * kRecordSize;
+            m_Ring[offset] = type;
+            m_Ring[offset + 1] = timestamp;
+            System.arraycopy(values, 0, m_Ring, offset + kHeaderSize, Math.min(values.length, kOdometrySize));
+            m_Count++;
+        }
+    }
+
+    /* Drops records of this type until unmuted, keeps WarmUp's synthetic drive commands out of the log */
+    public void setMuted(int type, boolean muted){
+        synchronized(m_Lock){
+            m_Muted = muted ? m_Muted | (1 << type) : m_Muted & ~(1 << type);
+        }
+    }
+
+    private void writeLoop(){
+        long lastDropped = 0;
+        boolean running = true;
+        while(running){
+            try{
+                Thread.sleep(20);
+            } catch(InterruptedException e){
+                running = false; // one last drain before closing
+            }
+            rotateIfNeeded();
+
+            int count;
+            long dropped;
+            synchronized(m_Lock){
+                count = m_Count;
+                for(int i = 0; i < count; i++){
+                    System.arraycopy(m_Ring, ((m_Head + i) % kCapacity) * kRecordSize, m_Drain, i * kRecordSize, kRecordSize);
+                }
+                m_Head = (m_Head + count) % kCapacity;
+                m_Count = 0;
+                dropped = m_Dropped;
+            }
+
+            for(int i = 0; i < count; i++){
+                write(i * kRecordSize);
+            }
+            if(dropped != lastDropped){
+                m_DroppedEntry.append(dropped);
+                lastDropped = dropped;
+            }
+        }
+        m_Log.close();
+    }
+
+    private void write(int offset){
+        int type = (int)m_Drain[offset];
+        long timestampMicros = (long)(m_Drain[offset + 1] * 1.0e6);
+        int data = offset + kHeaderSize;
+        switch(type){
+            case kOdometry:
+                m_YawEntry.append(m_Drain[data], timestampMicros);
+                for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+                    m_Distances[i] = m_Drain[data + 1 + i * 3];
+                    m_Angles[i] = m_Drain[data + 2 + i * 3];
+                    m_Velocities[i] = m_Drain[data + 3 + i * 3];
+                }
+                m_DistanceEntry.append(m_Distances, timestampMicros);
+                m_AngleEntry.append(m_Angles, timestampMicros);
+                m_VelocityEntry.append(m_Velocities, timestampMicros);
+                break;
+
+            case kCommand:
+                for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+                    m_DesiredStates[i] = new SwerveModuleState(m_Drain[data + i * 3], Rotation2d.fromDegrees(m_Drain[data + 1 + i * 3]));
+                    m_AppliedVolts[i] = m_Drain[data + 2 + i * 3];
+                }
+                m_DesiredStatesEntry.append(m_DesiredStates, timestampMicros);
+                m_AppliedVoltsEntry.append(m_AppliedVolts, timestampMicros);
+                break;
+
+            case kPose:
+                m_PoseEntry.append(new Pose2d(m_Drain[data], m_Drain[data + 1], new Rotation2d(m_Drain[data + 2])), timestampMicros);
+                break;
+
+            case kVision:
+                // One entry, so the replay never has to pair a pose with its std devs
+                System.arraycopy(m_Drain, data, m_Vision, 0, kVisionSize);
+                m_VisionEntry.append(m_Vision, timestampMicros);
+                break;
+
+            case kReset:
+                m_ResetEntry.append(new Pose2d(m_Drain[data], m_Drain[data + 1], new Rotation2d(m_Drain[data + 2])), timestampMicros);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /* Starts a new file on boot and whenever the FMS reports a different match */
+    private void rotateIfNeeded(){
+        String matchKey = DriverStation.isFMSAttached()
+                          ? DriverStation.getEventName() + "_" + DriverStation.getMatchType() + DriverStation.getMatchNumber() + "_" + DriverStation.getReplayNumber()
+                          : null;
+        if(m_Log != null && (matchKey == null || matchKey.equals(m_MatchKey))){
+            return;
+        }
+        if(m_Log != null){
+            m_Log.close();
+        }
+
+        File directory = new File(Filesystem.getOperatingDirectory(), "logs");
+        directory.mkdirs();
+        deleteOldLogs(directory);
+        String fileName = matchKey == null ? "drive_" + System.currentTimeMillis() + ".wpilog" : "drive_" + matchKey + ".wpilog";
+        m_Log = new DataLog(directory.getAbsolutePath(), fileName);
+        m_MatchKey = matchKey;
+
+        m_YawEntry = new DoubleLogEntry(m_Log, "Drive/Gyro/Yaw");
+        m_DistanceEntry = new DoubleArrayLogEntry(m_Log, "Drive/Modules/Distance");
+        m_AngleEntry = new DoubleArrayLogEntry(m_Log, "Drive/Modules/Angle");
+        m_VelocityEntry = new DoubleArrayLogEntry(m_Log, "Drive/Modules/Velocity");
+        m_DesiredStatesEntry = StructArrayLogEntry.create(m_Log, "Drive/Modules/DesiredStates", SwerveModuleState.struct);
+        m_AppliedVoltsEntry = new DoubleArrayLogEntry(m_Log, "Drive/Modules/AppliedVolts");
+        m_PoseEntry = StructLogEntry.create(m_Log, "Drive/Pose", Pose2d.struct);
+        m_VisionEntry = new DoubleArrayLogEntry(m_Log, "Drive/Vision/Measurement");
+        m_ResetEntry = StructLogEntry.create(m_Log, "Drive/ResetPose", Pose2d.struct);
+        m_DroppedEntry = new IntegerLogEntry(m_Log, "Drive/Recorder/Dropped");
+    }
+
+    /* Deletes the oldest logs until fewer than kMaxLogFiles are left and together they fit in kMaxLogBytes */
+    private static void deleteOldLogs(File directory){
+        File[] logs = directory.listFiles((dir, name) -> name.startsWith("drive_") && name.endsWith(".wpilog"));
+        if(logs == null){
+            return;
+        }
+        Arrays.sort(logs, Comparator.comparingLong(File::lastModified));
+        long totalBytes = 0;
+        for(File log : logs){
+            totalBytes += log.length();
+        }
+        for(int i = 0; i < logs.length && (logs.length - i >= kMaxLogFiles || totalBytes > kMaxLogBytes); i++){
+            long bytes = logs[i].length();
+            if(logs[i].delete()){
+                totalBytes -= bytes;
+            } else {
+                DriverStation.reportWarning("Could not delete old drive log " + logs[i].getName(), false);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StructArrayPublisher;
+import edu.wpi.first.networktables.StructPublisher;
+
+/**
+ * Drivetrain telemetry on typed NetworkTables topics under "Drive". Publishers are created once, the
+ * setters only copy into preallocated buffers and {@link #flush()} publishes everything in one batch.
+ */
+public class DriveTelemetry {
+    private StructArrayPublisher<SwerveModuleState> m_ModuleStatesPub;
+    private StructArrayPublisher<SwerveModuleState> m_DesiredStatesPub;
+    private StructPublisher<Pose2d> m_PosePub;
+    private DoubleArrayPublisher m_CommandedSpeedsPub;
+    private BooleanPublisher m_SlowModePub;
+    private IntegerPublisher m_OdometryFailuresPub;
+
+    private SwerveModuleState[] m_ModuleStates;
+    private SwerveModuleState[] m_DesiredStates;
+    private double[] m_CommandedSpeeds;
+    private Pose2d m_Pose;
+    private boolean m_SlowMode;
+    private long m_OdometryFailures;
+
+    public DriveTelemetry(){
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("Drive");
+        m_ModuleStatesPub = table.getStructArrayTopic("ModuleStates", SwerveModuleState.struct).publish();
+        m_DesiredStatesPub = table.getStructArrayTopic("DesiredStates", SwerveModuleState.struct).publish();
+        m_PosePub = table.getStructTopic("Pose", Pose2d.struct).publish();
+        m_CommandedSpeedsPub = table.getDoubleArrayTopic("CommandedSpeeds").publish();
+        m_SlowModePub = table.getBooleanTopic("SlowMode").publish();
+        m_OdometryFailuresPub = table.getIntegerTopic("OdometryFailures").publish();
+
+        m_ModuleStates = new SwerveModuleState[ModuleSetpoints.kNumModules];
+        m_DesiredStates = new SwerveModuleState[ModuleSetpoints.kNumModules];
+        for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+            m_ModuleStates[i] = new SwerveModuleState();
+            m_DesiredStates[i] = new SwerveModuleState();
+        }
+        m_CommandedSpeeds = new double[3];
+        m_Pose = new Pose2d();
+    }
+
+    public void setModuleState(int module, double speedMetersPerSecond, double angleDegrees){
+        setState(m_ModuleStates[module], speedMetersPerSecond, angleDegrees);
+    }
+
+    public void setDesiredStates(ModuleSetpoints setpoints){
+        for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+            setState(m_DesiredStates[i], setpoints.speeds[i], setpoints.anglesDegrees[i]);
+        }
+    }
+
+    public void setCommandedSpeeds(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double zRotRadiansPerSecond){
+        m_CommandedSpeeds[0] = xSpeedMetersPerSecond;
+        m_CommandedSpeeds[1] = ySpeedMetersPerSecond;
+        m_CommandedSpeeds[2] = zRotRadiansPerSecond;
+    }
+
+    public void setPose(Pose2d pose){
+        m_Pose = pose;
+    }
+
+    public void setSlowMode(boolean isSlowMode){
+        m_SlowMode = isSlowMode;
+    }
+
+    public void setOdometryFailures(long failures){
+        m_OdometryFailures = failures;
+    }
+
+    public void flush(){
+        m_ModuleStatesPub.set(m_ModuleStates);
+        m_DesiredStatesPub.set(m_DesiredStates);
+        m_PosePub.set(m_Pose);
+        m_CommandedSpeedsPub.set(m_CommandedSpeeds);
+        m_SlowModePub.set(m_SlowMode);
+        m_OdometryFailuresPub.set(m_OdometryFailures);
+    }
+
+    private static void setState(SwerveModuleState state, double speedMetersPerSecond, double angleDegrees){
+        state.speedMetersPerSecond = speedMetersPerSecond;
+        // Rotation2d is immutable, only replace it when the angle actually moved
+        if(state.angle.getDegrees() != angleDegrees){
+            state.angle = Rotation2d.fromDegrees(angleDegrees);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package frc.robot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * Occupancy grid over the field for {@link Pathfinder}. Obstacles are inflated by the robot radius when the
+ * grid is built, so a path only has to keep the robot's center in free cells. The field size comes from the
+ * AprilTag layout, the obstacles from a deploy file of rectangles, one {@code xMin,yMin,xMax,yMax} per line
+ * in meters, with {@code #} comments.
+ */
+public class FieldGrid {
+    private double m_CellSize;
+    private int m_Columns;
+    private int m_Rows;
+    private boolean[] m_Blocked;
+
+    public FieldGrid(double fieldLength, double fieldWidth, double cellSize, double robotRadius, double[][] obstacles){
+        m_CellSize = cellSize;
+        m_Columns = (int)Math.ceil(fieldLength / cellSize);
+        m_Rows = (int)Math.ceil(fieldWidth / cellSize);
+        m_Blocked = new boolean[m_Columns * m_Rows];
+        for(int row = 0; row < m_Rows; row++){
+            for(int column = 0; column < m_Columns; column++){
+                double x = (column + 0.5) * cellSize;
+                double y = (row + 0.5) * cellSize;
+                // Walls
+                boolean blocked = x < robotRadius || y < robotRadius || x > fieldLength - robotRadius || y > fieldWidth - robotRadius;
+                for(int i = 0; i < obstacles.length && !blocked; i++){
+                    double dx = Math.max(Math.max(obstacles[i][0] - x, x - obstacles[i][2]), 0.0);
+                    double dy = Math.max(Math.max(obstacles[i][1] - y, y - obstacles[i][3]), 0.0);
+                    blocked = Math.hypot(dx, dy) < robotRadius;
+                }
+                m_Blocked[row * m_Columns + column] = blocked;
+            }
+        }
+    }
+
+    /* The grid for this year's field with the deploy obstacle file, only the walls if the file is missing */
+    public static FieldGrid load(){
+        return new FieldGrid(VisionConstants.kTagLayout.getFieldLength(),
+                             VisionConstants.kTagLayout.getFieldWidth(),
+                             AutoConstants.PathfindingCellSize,
+                             AutoConstants.PathfindingRobotRadius,
+                             readObstacles(new File(Filesystem.getDeployDirectory(), AutoConstants.PathfindingObstacleFile)));
+    }
+
+    public static double[][] readObstacles(File file){
+        List<double[]> obstacles = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new FileReader(file))){
+            String line;
+            while((line = reader.readLine()) != null){
+                int comment = line.indexOf('#');
+                line = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if(line.isEmpty()){
+                    continue;
+                }
+                String[] values = line.split(",");
+                if(values.length != 4){
+                    DriverStation.reportWarning("Skipping obstacle \"" + line + "\" in " + file.getName(), false);
+                    continue;
+                }
+                double[] obstacle = new double[4];
+                for(int i = 0; i < 4; i++){
+                    obstacle[i] = Double.parseDouble(values[i].trim());
+                }
+                obstacles.add(obstacle);
+            }
+        } catch(IOException | NumberFormatException e){
+            DriverStation.reportWarning("Could not read obstacles from " + file.getPath() + ": " + e.getMessage(), false);
+        }
+        return obstacles.toArray(new double[0][]);
+    }
+
+    public int getColumns(){
+        return m_Columns;
+    }
+
+    public int getRows(){
+        return m_Rows;
+    }
+
+    public int size(){
+        return m_Blocked.length;
+    }
+
+    public double getCellSize(){
+        return m_CellSize;
+    }
+
+    /* Cell containing the point, clamped onto the grid */
+    public int cellAt(double x, double y){
+        int column = MathUtil.clamp((int)(x / m_CellSize), 0, m_Columns - 1);
+        int row = MathUtil.clamp((int)(y / m_CellSize), 0, m_Rows - 1);
+        return row * m_Columns + column;
+    }
+
+    public int column(int cell){
+        return cell % m_Columns;
+    }
+
+    public int row(int cell){
+        return cell / m_Columns;
+    }
+
+    public double centerX(int cell){
+        return (column(cell) + 0.5) * m_CellSize;
+    }
+
+    public double centerY(int cell){
+        return (row(cell) + 0.5) * m_CellSize;
+    }
+
+    public boolean isBlocked(int cell){
+        return m_Blocked[cell];
+    }
+
+    /* True if the straight line between two points only crosses free cells, checked every half cell */
+    public boolean hasLineOfSight(double x0, double y0, double x1, double y1){
+        double length = Math.hypot(x1 - x0, y1 - y0);
+        int steps = (int)Math.ceil(length / (m_CellSize * 0.5));
+        for(int i = 0; i <= steps; i++){
+            double t = steps == 0 ? 0.0 : (double)i / steps;
+            if(m_Blocked[cellAt(x0 + (x1 - x0) * t, y0 + (y1 - y0) * t)]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Closest free cell to the given one by grid distance, -1 if the whole grid is blocked */
+    public int nearestFree(int cell){
+        if(!m_Blocked[cell]){
+            return cell;
+        }
+        int column = column(cell);
+        int row = row(cell);
+        int maxRadius = Math.max(m_Columns, m_Rows);
+        for(int radius = 1; radius < maxRadius; radius++){
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for(int dr = -radius; dr <= radius; dr++){
+                for(int dc = -radius; dc <= radius; dc++){
+                    if(Math.max(Math.abs(dr), Math.abs(dc)) != radius){
+                        continue;
+                    }
+                    int r = row + dr;
+                    int c = column + dc;
+                    if(r < 0 || c < 0 || r >= m_Rows || c >= m_Columns || m_Blocked[r * m_Columns + c]){
+                        continue;
+                    }
+                    double distance = Math.hypot(dr, dc);
+                    if(distance < bestDistance){
+                        bestDistance = distance;
+                        best = r * m_Columns + c;
+                    }
+                }
+            }
+            if(best >= 0){
+                return best;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,44 @@
+package frc.robot;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+
+/**
+ * Hardware boundary of the drivetrain gyro, see {@link ModuleIO}. Yaw is counter clockwise positive in
+ * degrees, continuous.
+ */
+public interface GyroIO {
+    public static class GyroIOInputs {
+        public boolean connected;
+        public double yawDegrees;
+        public double yawRateDegPerSec;
+
+        public void copyFrom(GyroIOInputs other){
+            connected = other.connected;
+            yawDegrees = other.yawDegrees;
+            yawRateDegPerSec = other.yawRateDegPerSec;
+        }
+    }
+
+    /* Copies the inputs, the signals from getInputSignals() have already been refreshed for this loop */
+    public default void updateInputs(GyroIOInputs inputs) {}
+
+    public default BaseStatusSignal[] getInputSignals(){
+        return new BaseStatusSignal[0];
+    }
+
+    /* Yaw at the odometry thread's last sample, called by the odometry thread after its signals arrive */
+    public default double getOdometryYawDegrees(){
+        return 0.0;
+    }
+
+    public default BaseStatusSignal[] getOdometrySignals(){
+        return new BaseStatusSignal[0];
+    }
+
+    public default void setYaw(double degrees) {}
+
+    public default void addConfigurations(DeviceConfigurator configurator, String name) {}
+
+    /* Integrates the yaw rate the simulated drivetrain is turning at */
+    public default void simulationPeriodic(double yawRateRadPerSec, double dtSeconds) {}
+}
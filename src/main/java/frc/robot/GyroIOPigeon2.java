@@ -0,0 +1,68 @@
+package frc.robot;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.Pigeon2Configuration;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.sim.Pigeon2SimState;
+
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants.SwerveConstants;
+
+public class GyroIOPigeon2 implements GyroIO {
+    private Pigeon2 m_Gyro;
+    private StatusSignal<Double> m_Yaw;
+    private StatusSignal<Double> m_YawRate;
+    private double m_SimYawDegrees;
+
+    /* Yaw signals belong to the odometry thread, the inputs copy its last sample */
+    private volatile boolean m_Connected;
+    private volatile double m_YawDegrees;
+    private volatile double m_YawRateDegPerSec;
+
+    public GyroIOPigeon2(int id){
+        m_Gyro = new Pigeon2(id, "DriveCANivore");
+        m_Yaw = m_Gyro.getYaw();
+        m_YawRate = m_Gyro.getAngularVelocityZWorld();
+    }
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs){
+        inputs.connected = m_Connected;
+        inputs.yawDegrees = m_YawDegrees;
+        inputs.yawRateDegPerSec = m_YawRateDegPerSec;
+    }
+
+    @Override
+    public double getOdometryYawDegrees(){
+        m_Connected = m_Yaw.getStatus().isOK();
+        m_YawRateDegPerSec = m_YawRate.getValueAsDouble();
+        m_YawDegrees = BaseStatusSignal.getLatencyCompensatedValue(m_Yaw, m_YawRate);
+        return m_YawDegrees;
+    }
+
+    @Override
+    public BaseStatusSignal[] getOdometrySignals(){
+        return new BaseStatusSignal[]{ m_Yaw, m_YawRate };
+    }
+
+    @Override
+    public void setYaw(double degrees){
+        m_Gyro.setYaw(degrees);
+        m_SimYawDegrees = degrees;
+        m_YawDegrees = degrees;
+    }
+
+    @Override
+    public void addConfigurations(DeviceConfigurator configurator, String name){
+        configurator.addPigeon2(name, m_Gyro, new Pigeon2Configuration());
+    }
+
+    @Override
+    public void simulationPeriodic(double yawRateRadPerSec, double dtSeconds){
+        m_SimYawDegrees += yawRateRadPerSec * dtSeconds * SwerveConstants.RAD_TO_DEG;
+        Pigeon2SimState gyroSim = m_Gyro.getSimState();
+        gyroSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+        gyroSim.setRawYaw(m_SimYawDegrees);
+    }
+}
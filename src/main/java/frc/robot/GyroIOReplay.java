@@ -0,0 +1,20 @@
+package frc.robot;
+
+/* Plays back recorded gyro inputs, ReplayRunner fills getReplayedInputs() before every odometry sample */
+public class GyroIOReplay implements GyroIO {
+    private GyroIOInputs m_Replayed = new GyroIOInputs();
+
+    public GyroIOInputs getReplayedInputs(){
+        return m_Replayed;
+    }
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs){
+        inputs.copyFrom(m_Replayed);
+    }
+
+    @Override
+    public double getOdometryYawDegrees(){
+        return m_Replayed.yawDegrees;
+    }
+}
@@ -0,0 +1,32 @@
+package frc.robot;
+
+import frc.robot.Constants.SwerveConstants;
+
+/* Ideal gyro for headless runs, integrates whatever yaw rate the simulated drivetrain reports */
+public class GyroIOSim implements GyroIO {
+    private volatile double m_YawDegrees;
+    private volatile double m_YawRateDegPerSec;
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs){
+        inputs.connected = true;
+        inputs.yawDegrees = m_YawDegrees;
+        inputs.yawRateDegPerSec = m_YawRateDegPerSec;
+    }
+
+    @Override
+    public double getOdometryYawDegrees(){
+        return m_YawDegrees;
+    }
+
+    @Override
+    public void setYaw(double degrees){
+        m_YawDegrees = degrees;
+    }
+
+    @Override
+    public void simulationPeriodic(double yawRateRadPerSec, double dtSeconds){
+        m_YawRateDegPerSec = yawRateRadPerSec * SwerveConstants.RAD_TO_DEG;
+        m_YawDegrees += m_YawRateDegPerSec * dtSeconds;
+    }
+}
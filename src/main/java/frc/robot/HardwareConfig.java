@@ -3,7 +3,11 @@ package frc.robot;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.signals.AbsoluteSensorRangeValue;
+import com.ctre.phoenix6.signals.FeedbackSensorSourceValue;
+import com.ctre.phoenix6.signals.InvertedValue;
+import com.ctre.phoenix6.signals.NeutralModeValue;
 import com.ctre.phoenix6.signals.SensorDirectionValue;
+import edu.wpi.first.math.system.plant.DCMotor;
 
 // import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -16,11 +20,13 @@ public class HardwareConfig {
     TalonFXConfiguration swerveAngleFXConfig;
     TalonFXConfiguration swerveDriveFXConfig;
 
-    public HardwareConfig(){
+    /* Per module, the CANcoder keeps the module's offset and the angle motor closes its loop on that CANcoder */
+    public HardwareConfig(int canCoderID, double angleOffsetDegrees){
         /* CANCoder Config */
         swerveCANCoderConfig = new CANcoderConfiguration();
-        swerveCANCoderConfig.MagnetSensor.AbsoluteSensorRange = AbsoluteSensorRangeValue.Unsigned_0To1;
+        swerveCANCoderConfig.MagnetSensor.AbsoluteSensorRange = AbsoluteSensorRangeValue.Signed_PlusMinusHalf;
         swerveCANCoderConfig.MagnetSensor.SensorDirection = SensorDirectionValue.CounterClockwise_Positive;
+        swerveCANCoderConfig.MagnetSensor.MagnetOffset = -angleOffsetDegrees / 360.0;
         // Per second is default
 
         /* Drive Motor Config */
@@ -28,6 +34,19 @@ public class HardwareConfig {
         swerveDriveFXConfig.Slot0.kP = SwerveConstants.driveKP;
         swerveDriveFXConfig.Slot0.kI = SwerveConstants.driveKI;
         swerveDriveFXConfig.Slot0.kD = SwerveConstants.driveKD;
+        // The characterized gains are per meter of wheel travel, the TalonFX works in rotor rotations
+        double metersPerRotorRotation = SwerveConstants.wheelCircumference / SwerveConstants.driveGearRatio;
+        swerveDriveFXConfig.Slot0.kS = SwerveConstants.driveKS;
+        swerveDriveFXConfig.Slot0.kV = SwerveConstants.driveKV * metersPerRotorRotation;
+        swerveDriveFXConfig.Slot0.kA = SwerveConstants.driveKA * metersPerRotorRotation;
+        // Slot 1 is for VelocityTorqueCurrentFOC, in amps. No kV, torque control does not fight back EMF
+        double ampsPerNewton = SwerveConstants.wheelCircumference / (2.0 * Math.PI)
+                               / (SwerveConstants.driveGearRatio * DCMotor.getFalcon500(1).KtNMPerAmp);
+        swerveDriveFXConfig.Slot1.kS = SwerveConstants.driveKSAmps;
+        swerveDriveFXConfig.Slot1.kP = SwerveConstants.driveKPAmps;
+        swerveDriveFXConfig.Slot1.kA = SwerveConstants.robotMass / 4.0 * metersPerRotorRotation * ampsPerNewton;
+        swerveDriveFXConfig.TorqueCurrent.PeakForwardTorqueCurrent = SwerveConstants.drivePeakCurrentLimit;
+        swerveDriveFXConfig.TorqueCurrent.PeakReverseTorqueCurrent = -SwerveConstants.drivePeakCurrentLimit;
         swerveDriveFXConfig.CurrentLimits.SupplyCurrentLimitEnable = SwerveConstants.driveEnableCurrentLimit;
         swerveDriveFXConfig.CurrentLimits.SupplyCurrentLimit = SwerveConstants.driveContinuousCurrentLimit;
         swerveDriveFXConfig.CurrentLimits.SupplyCurrentThreshold = SwerveConstants.drivePeakCurrentLimit;
@@ -37,16 +56,31 @@ public class HardwareConfig {
         swerveDriveFXConfig.OpenLoopRamps.VoltageOpenLoopRampPeriod = SwerveConstants.openLoopRamp;
         swerveDriveFXConfig.ClosedLoopRamps.VoltageClosedLoopRampPeriod = SwerveConstants.closedLoopRamp;
         swerveDriveFXConfig.Voltage.PeakForwardVoltage = SwerveConstants.kNominal;
+        // Part of the config instead of setInverted()/setNeutralMode(), so one apply sets everything
+        swerveDriveFXConfig.MotorOutput.Inverted = SwerveConstants.driveMotorInvert ? InvertedValue.Clockwise_Positive : InvertedValue.CounterClockwise_Positive;
+        swerveDriveFXConfig.MotorOutput.NeutralMode = NeutralModeValue.Brake;
 
         /* Angle Motor Config */
         swerveAngleFXConfig = new TalonFXConfiguration();
-        swerveAngleFXConfig.Slot0.kP = SwerveConstants.angleKP;
-        swerveAngleFXConfig.Slot0.kI = SwerveConstants.angleKI;
-        swerveAngleFXConfig.Slot0.kD = SwerveConstants.angleKD;
+        // Positions are in module rotations now, the gains were tuned per rotor rotation
+        swerveAngleFXConfig.Slot0.kP = SwerveConstants.angleKP * SwerveConstants.angleGearRatio;
+        swerveAngleFXConfig.Slot0.kI = SwerveConstants.angleKI * SwerveConstants.angleGearRatio;
+        swerveAngleFXConfig.Slot0.kD = SwerveConstants.angleKD * SwerveConstants.angleGearRatio;
+        // Multiplies the Motion Magic profile velocity
+        swerveAngleFXConfig.Slot0.kV = SwerveConstants.angleKV * SwerveConstants.angleGearRatio;
+        swerveAngleFXConfig.Feedback.FeedbackRemoteSensorID = canCoderID;
+        swerveAngleFXConfig.Feedback.FeedbackSensorSource = SwerveConstants.steerFusedCANcoder ? FeedbackSensorSourceValue.FusedCANcoder
+                                                                                               : FeedbackSensorSourceValue.RemoteCANcoder;
+        swerveAngleFXConfig.Feedback.SensorToMechanismRatio = 1.0;
+        swerveAngleFXConfig.Feedback.RotorToSensorRatio = SwerveConstants.angleGearRatio;
+        swerveAngleFXConfig.ClosedLoopGeneral.ContinuousWrap = true;
+        swerveAngleFXConfig.MotionMagic.MotionMagicCruiseVelocity = SwerveConstants.maxSteerVelocity / 360.0;
+        swerveAngleFXConfig.MotionMagic.MotionMagicAcceleration = SwerveConstants.angleMotionMagicAcceleration;
         swerveAngleFXConfig.CurrentLimits.SupplyCurrentLimitEnable = SwerveConstants.angleEnableCurrentLimit;
         swerveAngleFXConfig.CurrentLimits.SupplyCurrentLimit = SwerveConstants.angleContinuousCurrentLimit;
         swerveAngleFXConfig.CurrentLimits.SupplyCurrentThreshold = SwerveConstants.anglePeakCurrentLimit;
         swerveAngleFXConfig.CurrentLimits.SupplyTimeThreshold = SwerveConstants.anglePeakCurrentDuration;
-        // SensorInitializationStrategy.BootToZero
+        swerveAngleFXConfig.MotorOutput.Inverted = SwerveConstants.angleMotorInvert ? InvertedValue.Clockwise_Positive : InvertedValue.CounterClockwise_Positive;
+        swerveAngleFXConfig.MotorOutput.NeutralMode = NeutralModeValue.Coast;
     }
 }
@@ -0,0 +1,147 @@
+package frc.robot;
+
+import java.util.Arrays;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ * Times named stages of the robot loop (subsystem periodics, command executes, telemetry) into fixed
+ * bucket histograms kept in primitive arrays. Every {@link #kPublishLoops} loops the p50/p99/max of each
+ * stage is published to "LoopTiming/<stage>" in milliseconds and the histograms are cleared. When a loop
+ * overruns the period, the stage that took the longest in that loop is reported.
+ *
+ * <p>Only call from the main robot thread. Stages that nest (a flush inside a periodic) are both counted
+ * in full, so the outer stage includes the inner one.
+ */
+public final class LoopProfiler {
+    private static final int kMaxStages = 16;
+    private static final long kBucketNanos = 50_000; // 50 us
+    private static final int kBuckets = 500;         // 0 - 25 ms, anything longer lands in the last bucket
+    private static final int kPublishLoops = 50;
+    private static final long kPeriodNanos = (long)(TimedRobot.kDefaultPeriod * 1.0e9);
+
+    private static String[] m_Names = new String[kMaxStages];
+    private static DoubleArrayPublisher[] m_Publishers = new DoubleArrayPublisher[kMaxStages];
+    private static int[][] m_Histograms = new int[kMaxStages][kBuckets];
+    private static int[] m_Samples = new int[kMaxStages];
+    private static long[] m_Max = new long[kMaxStages];
+    private static long[] m_Start = new long[kMaxStages];
+    private static long[] m_LoopNanos = new long[kMaxStages];
+    private static boolean[] m_Ran = new boolean[kMaxStages];
+    private static double[] m_Stats = new double[3];
+    private static int m_NumStages;
+
+    private static int m_LoopStage = register("Loop");
+    private static long m_LoopStart;
+    private static int m_LoopCount;
+
+    /**
+     * Registers a stage and returns its id, registering a name again returns the same id.
+     *
+     * @param name stage name used for publishing and overrun reports
+     * @return the stage id to pass to {@link #start(int)} and {@link #stop(int)}
+     */
+    public static synchronized int register(String name){
+        for(int i = 0; i < m_NumStages; i++){
+            if(m_Names[i].equals(name)){
+                return i;
+            }
+        }
+        if(m_NumStages == kMaxStages){
+            throw new IllegalStateException("Too many LoopProfiler stages, raise kMaxStages");
+        }
+        m_Names[m_NumStages] = name;
+        return m_NumStages++;
+    }
+
+    public static void start(int stage){
+        m_Start[stage] = System.nanoTime();
+    }
+
+    public static void stop(int stage){
+        m_LoopNanos[stage] += System.nanoTime() - m_Start[stage];
+        m_Ran[stage] = true;
+    }
+
+    public static void beginLoop(){
+        m_LoopStart = System.nanoTime();
+    }
+
+    public static void endLoop(){
+        m_LoopNanos[m_LoopStage] = System.nanoTime() - m_LoopStart;
+        m_Ran[m_LoopStage] = true;
+
+        int worstStage = -1;
+        for(int i = 0; i < m_NumStages; i++){
+            if(!m_Ran[i]){
+                continue;
+            }
+            long nanos = m_LoopNanos[i];
+            int bucket = (int)Math.min(nanos / kBucketNanos, kBuckets - 1);
+            m_Histograms[i][bucket]++;
+            m_Samples[i]++;
+            m_Max[i] = Math.max(m_Max[i], nanos);
+            if(i != m_LoopStage && (worstStage == -1 || nanos > m_LoopNanos[worstStage])){
+                worstStage = i;
+            }
+        }
+
+        long loopNanos = m_LoopNanos[m_LoopStage];
+        if(loopNanos > kPeriodNanos && worstStage != -1){
+            DriverStation.reportWarning("Loop overrun " + loopNanos / 1.0e6 + " ms, slowest stage "
+                                        + m_Names[worstStage] + " " + m_LoopNanos[worstStage] / 1.0e6 + " ms", false);
+        }
+
+        for(int i = 0; i < m_NumStages; i++){
+            m_LoopNanos[i] = 0;
+            m_Ran[i] = false;
+        }
+
+        if(++m_LoopCount >= kPublishLoops){
+            publish();
+            m_LoopCount = 0;
+        }
+    }
+
+    private static void publish(){
+        for(int i = 0; i < m_NumStages; i++){
+            if(m_Samples[i] == 0){
+                continue;
+            }
+            m_Stats[0] = percentile(i, 0.50);
+            m_Stats[1] = percentile(i, 0.99);
+            m_Stats[2] = m_Max[i] / 1.0e6;
+            // Created on first publish so registering a stage never touches NetworkTables
+            if(m_Publishers[i] == null){
+                NetworkTable table = NetworkTableInstance.getDefault().getTable("LoopTiming");
+                m_Publishers[i] = table.getDoubleArrayTopic(m_Names[i]).publish();
+            }
+            m_Publishers[i].set(m_Stats);
+
+            Arrays.fill(m_Histograms[i], 0);
+            m_Samples[i] = 0;
+            m_Max[i] = 0;
+        }
+    }
+
+    /* Upper edge of the bucket containing the percentile, in milliseconds */
+    private static double percentile(int stage, double fraction){
+        int target = (int)Math.ceil(m_Samples[stage] * fraction);
+        int seen = 0;
+        for(int bucket = 0; bucket < kBuckets; bucket++){
+            seen += m_Histograms[stage][bucket];
+            if(seen >= target){
+                return (bucket + 1) * kBucketNanos / 1.0e6;
+            }
+        }
+        return kBuckets * kBucketNanos / 1.0e6;
+    }
+
+    private LoopProfiler() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+}
@@ -0,0 +1,73 @@
+package frc.robot;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+
+/**
+ * Hardware boundary of one swerve module. {@link SwerveModule} only sees the inputs object and the two
+ * outputs below, so the same drive logic runs against Phoenix 6 devices, a pure physics model or a log.
+ * Everything hardware specific has a no-op default so implementations only override what they have.
+ */
+public interface ModuleIO {
+    /* Everything the module logic reads, filled once per loop by updateInputs() */
+    public static class ModuleIOInputs {
+        public double drivePositionMeters;
+        public double driveVelocityMPS;
+        public double driveAppliedVolts;
+        public double angleDegrees;            // relative encoder, continuous
+        public double angleVelocityDegPerSec;
+        public double absoluteAngleDegrees;    // absolute encoder with the module offset removed
+        public double angleErrorDegrees;       // steer closed loop error
+
+        public void copyFrom(ModuleIOInputs other){
+            drivePositionMeters = other.drivePositionMeters;
+            driveVelocityMPS = other.driveVelocityMPS;
+            driveAppliedVolts = other.driveAppliedVolts;
+            angleDegrees = other.angleDegrees;
+            angleVelocityDegPerSec = other.angleVelocityDegPerSec;
+            absoluteAngleDegrees = other.absoluteAngleDegrees;
+            angleErrorDegrees = other.angleErrorDegrees;
+        }
+    }
+
+    /* Copies the inputs, the signals from getInputSignals() have already been refreshed for this loop */
+    public default void updateInputs(ModuleIOInputs inputs) {}
+
+    /* Signals the main loop refreshes in one batch with every other device's before calling updateInputs() */
+    public default BaseStatusSignal[] getInputSignals(){
+        return new BaseStatusSignal[0];
+    }
+
+    /**
+     * Writes the module's latest odometry sample, called by the odometry thread after its signals arrive.
+     *
+     * @param out distance in meters, angle in degrees and drive velocity in m/s, in that order
+     */
+    public default void updateOdometry(double[] out) {}
+
+    /* Signals the odometry thread waits on, empty if this implementation has none and the thread should sleep instead */
+    public default BaseStatusSignal[] getOdometrySignals(){
+        return new BaseStatusSignal[0];
+    }
+
+    public default void setDriveVoltage(double volts) {}
+
+    /* Drive velocity target for the motor controller's closed loop, the acceleration is its kA feedforward */
+    public default void setDriveVelocity(double velocityMPS, double accelerationMPSS) {}
+
+    /* Steer position target, with the rate the target is moving at as a velocity feedforward */
+    public default void setAngleDegrees(double degrees, double velocityDegPerSec) {}
+
+    /* While off, the output methods above leave the motors on whatever they were last given */
+    public default void setOutputsEnabled(boolean enabled) {}
+
+    public default void addConfigurations(DeviceConfigurator configurator, String name) {}
+
+    public default BaseStatusSignal[] getReadySignals(){
+        return new BaseStatusSignal[0];
+    }
+
+    /* Zeroes the drive position, and sets the steer position to angleDegrees if the steer sensor is not absolute */
+    public default void seedPositions(DeviceConfigurator configurator, String name, double angleDegrees) {}
+
+    public default void simulationPeriodic(double dtSeconds) {}
+}
@@ -0,0 +1,209 @@
+package frc.robot;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.VelocityTorqueCurrentFOC;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.sim.CANcoderSimState;
+import com.ctre.phoenix6.sim.ChassisReference;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Module on two TalonFXs and a CANcoder. Position and velocity signals belong to the odometry thread,
+ * which is the only thread allowed to refresh them, so updateInputs() copies its last sample instead of
+ * reading them again. The steer motor closes its loop on the CANcoder, which holds the module offset, so
+ * its position is the module angle from boot and nothing is seeded from the RIO. In simulation the devices'
+ * sim states are driven from {@link SwerveModuleSim}.
+ */
+public class ModuleIOPhoenix implements ModuleIO {
+    private TalonFX m_DriveMotor;
+    private TalonFX m_AngleMotor;
+    private CANcoder m_CANCoder;
+    private double m_AngleOffset;
+    private HardwareConfig m_Settings;
+
+    private StatusSignal<Double> m_DrivePosition;
+    private StatusSignal<Double> m_DriveVelocity;
+    private StatusSignal<Double> m_AnglePosition;
+    private StatusSignal<Double> m_AngleVelocity;
+    private StatusSignal<Double> m_AbsolutePosition;
+    private StatusSignal<Double> m_DriveVoltage;
+    private StatusSignal<Double> m_AngleError;
+
+    /* Written by the odometry thread */
+    private volatile double m_DrivePositionMeters;
+    private volatile double m_DriveVelocityMPS;
+    private volatile double m_AngleDegrees;
+    private volatile double m_AngleVelocityDegPerSec;
+
+    private MotionMagicVoltage m_AngleRequest;
+    private VoltageOut m_DriveRequest;
+    private VelocityVoltage m_DriveVelocityRequest;
+    private VelocityTorqueCurrentFOC m_DriveTorqueRequest;
+    private volatile boolean m_OutputsEnabled;
+
+    /* Only created in simulation */
+    private SwerveModuleSim m_Sim;
+
+    public ModuleIOPhoenix(double[] module){
+        m_DriveMotor = new TalonFX((int)module[0], "DriveCANivore");
+        m_AngleMotor = new TalonFX((int)module[1], "DriveCANivore");
+        m_CANCoder = new CANcoder((int)module[2], "DriveCANivore");
+        m_AngleOffset = module[3];
+        m_Settings = new HardwareConfig((int)module[2], m_AngleOffset);
+
+        if(RobotBase.isSimulation()){
+            m_Sim = new SwerveModuleSim();
+            // Start the simulated module pointing straight ahead, so the absolute encoder reads the offset
+            m_CANCoder.getSimState().setRawPosition(m_AngleOffset / 360.0);
+            if(SwerveConstants.angleMotorInvert){
+                m_AngleMotor.getSimState().Orientation = ChassisReference.Clockwise_Positive;
+            }
+            if(SwerveConstants.driveMotorInvert){
+                m_DriveMotor.getSimState().Orientation = ChassisReference.Clockwise_Positive;
+            }
+        }
+
+        m_DrivePosition = m_DriveMotor.getPosition();
+        m_DriveVelocity = m_DriveMotor.getVelocity();
+        m_AnglePosition = m_AngleMotor.getPosition();
+        m_AngleVelocity = m_AngleMotor.getVelocity();
+        m_AbsolutePosition = m_CANCoder.getAbsolutePosition();
+        m_DriveVoltage = m_DriveMotor.getMotorVoltage();
+        m_AngleError = m_AngleMotor.getClosedLoopError();
+
+        m_AngleRequest = new MotionMagicVoltage(0.0).withSlot(0);
+        m_DriveRequest = new VoltageOut(0.0);
+        m_DriveVelocityRequest = new VelocityVoltage(0.0).withSlot(0);
+        m_DriveTorqueRequest = new VelocityTorqueCurrentFOC(0.0).withSlot(1);
+        m_OutputsEnabled = true;
+    }
+
+    @Override
+    public void updateInputs(ModuleIOInputs inputs){
+        inputs.drivePositionMeters = m_DrivePositionMeters;
+        inputs.driveVelocityMPS = m_DriveVelocityMPS;
+        inputs.driveAppliedVolts = m_DriveVoltage.getValueAsDouble();
+        inputs.angleDegrees = m_AngleDegrees;
+        inputs.angleVelocityDegPerSec = m_AngleVelocityDegPerSec;
+        inputs.absoluteAngleDegrees = m_AbsolutePosition.getValueAsDouble() * 360.0;
+        inputs.angleErrorDegrees = m_AngleError.getValueAsDouble() * 360.0;
+    }
+
+    @Override
+    public BaseStatusSignal[] getInputSignals(){
+        return new BaseStatusSignal[]{ m_AbsolutePosition, m_DriveVoltage, m_AngleError };
+    }
+
+    @Override
+    public void updateOdometry(double[] out){
+        double driveRotations = BaseStatusSignal.getLatencyCompensatedValue(m_DrivePosition, m_DriveVelocity);
+        double angleRotations = BaseStatusSignal.getLatencyCompensatedValue(m_AnglePosition, m_AngleVelocity);
+        m_DrivePositionMeters = SwerveModule.falconToMeters(driveRotations);
+        m_DriveVelocityMPS = SwerveModule.falconToMPS(m_DriveVelocity.getValueAsDouble());
+        m_AngleDegrees = angleRotations * 360.0;
+        m_AngleVelocityDegPerSec = m_AngleVelocity.getValueAsDouble() * 360.0;
+        out[0] = m_DrivePositionMeters;
+        out[1] = m_AngleDegrees;
+        out[2] = m_DriveVelocityMPS;
+    }
+
+    @Override
+    public BaseStatusSignal[] getOdometrySignals(){
+        return new BaseStatusSignal[]{ m_DrivePosition, m_DriveVelocity, m_AnglePosition, m_AngleVelocity };
+    }
+
+    @Override
+    public void setDriveVoltage(double volts){
+        m_DriveRequest.withOutput(volts);
+        if(m_OutputsEnabled){
+            m_DriveMotor.setControl(m_DriveRequest);
+        }
+    }
+
+    /* The TalonFX runs the velocity loop at 1 kHz with the kS/kV/kA from HardwareConfig */
+    @Override
+    public void setDriveVelocity(double velocityMPS, double accelerationMPSS){
+        double velocity = SwerveModule.mpsToFalcon(velocityMPS);
+        double acceleration = SwerveModule.mpsToFalcon(accelerationMPSS);
+        if(SwerveConstants.driveTorqueCurrentFOC){
+            m_DriveTorqueRequest.withVelocity(velocity).withAcceleration(acceleration);
+            if(m_OutputsEnabled){
+                m_DriveMotor.setControl(m_DriveTorqueRequest);
+            }
+        } else {
+            m_DriveVelocityRequest.withVelocity(velocity).withAcceleration(acceleration);
+            if(m_OutputsEnabled){
+                m_DriveMotor.setControl(m_DriveVelocityRequest);
+            }
+        }
+    }
+
+    /* The setpoint's steer rate is fed forward in volts, angleKV per rotor rotation per second */
+    @Override
+    public void setAngleDegrees(double degrees, double velocityDegPerSec){
+        // Motion Magic only feeds forward its own profile velocity toward the current target, which lags a target that keeps moving
+        double feedForwardVolts = SwerveConstants.angleKV * SwerveModule.degreesToFalcon(velocityDegPerSec);
+        m_AngleRequest.withPosition(degrees / 360.0).withFeedForward(feedForwardVolts);
+        if(m_OutputsEnabled){
+            m_AngleMotor.setControl(m_AngleRequest);
+        }
+    }
+
+    /* Phoenix keeps sending the last request it was given and the motors act on it at enable, so a gated request is never handed over */
+    @Override
+    public void setOutputsEnabled(boolean enabled){
+        m_OutputsEnabled = enabled;
+    }
+
+    /* Queues this module's three device configs, they are applied concurrently with every other device */
+    @Override
+    public void addConfigurations(DeviceConfigurator configurator, String name){
+        configurator.addCANcoder(name + " CANcoder", m_CANCoder, m_Settings.swerveCANCoderConfig);
+        configurator.addTalonFX(name + " angle motor", m_AngleMotor, m_Settings.swerveAngleFXConfig);
+        configurator.addTalonFX(name + " drive motor", m_DriveMotor, m_Settings.swerveDriveFXConfig);
+    }
+
+    /* Signals that have to report before the module can be seeded, waiting on them replaces a fixed boot delay */
+    @Override
+    public BaseStatusSignal[] getReadySignals(){
+        return new BaseStatusSignal[]{ m_AbsolutePosition, m_AnglePosition, m_DrivePosition };
+    }
+
+    /* Only the drive is zeroed, the steer position already comes from the CANcoder */
+    @Override
+    public void seedPositions(DeviceConfigurator configurator, String name, double angleDegrees){
+        configurator.add(name + " drive position", () -> m_DriveMotor.setPosition(0.0), () -> true);
+        m_AngleDegrees = angleDegrees;
+    }
+
+    /* Steps the physics model with the voltages the motor controllers are applying and writes the result back into the device sim states */
+    @Override
+    public void simulationPeriodic(double dtSeconds){
+        TalonFXSimState driveSim = m_DriveMotor.getSimState();
+        TalonFXSimState angleSim = m_AngleMotor.getSimState();
+        CANcoderSimState canCoderSim = m_CANCoder.getSimState();
+        double batteryVoltage = RobotController.getBatteryVoltage();
+        driveSim.setSupplyVoltage(batteryVoltage);
+        angleSim.setSupplyVoltage(batteryVoltage);
+        canCoderSim.setSupplyVoltage(batteryVoltage);
+
+        m_Sim.update(driveSim.getMotorVoltage(), angleSim.getMotorVoltage(), dtSeconds);
+
+        double driveRotorPerMeter = SwerveConstants.driveGearRatio / SwerveConstants.wheelCircumference;
+        driveSim.setRawRotorPosition(m_Sim.getDrivePositionMeters() * driveRotorPerMeter);
+        driveSim.setRotorVelocity(m_Sim.getDriveVelocityMPS() * driveRotorPerMeter);
+        angleSim.setRawRotorPosition(m_Sim.getSteerPositionRotations() * SwerveConstants.angleGearRatio);
+        angleSim.setRotorVelocity(m_Sim.getSteerVelocityRPS() * SwerveConstants.angleGearRatio);
+        canCoderSim.setRawPosition(m_Sim.getSteerPositionRotations() + m_AngleOffset / 360.0);
+        canCoderSim.setVelocity(m_Sim.getSteerVelocityRPS());
+    }
+}
@@ -0,0 +1,22 @@
+package frc.robot;
+
+/* Plays back recorded module inputs, ReplayRunner fills getReplayedInputs() before every odometry sample. Outputs are ignored. */
+public class ModuleIOReplay implements ModuleIO {
+    private ModuleIOInputs m_Replayed = new ModuleIOInputs();
+
+    public ModuleIOInputs getReplayedInputs(){
+        return m_Replayed;
+    }
+
+    @Override
+    public void updateInputs(ModuleIOInputs inputs){
+        inputs.copyFrom(m_Replayed);
+    }
+
+    @Override
+    public void updateOdometry(double[] out){
+        out[0] = m_Replayed.drivePositionMeters;
+        out[1] = m_Replayed.angleDegrees;
+        out[2] = m_Replayed.driveVelocityMPS;
+    }
+}
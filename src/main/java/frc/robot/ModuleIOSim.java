@@ -0,0 +1,121 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Module backed only by {@link SwerveModuleSim}, no vendor or HAL calls, so the drive logic can run headless.
+ * The steer position loop that would run on the TalonFX runs here instead, with the same gains converted
+ * from rotor rotations to module degrees. The drive velocity loop is emulated the same way, always in volts
+ * since the physics model has no torque current mode.
+ *
+ * <p>The model is only stepped and read on the robot thread. simulationPeriodic() publishes what the
+ * odometry thread needs as volatile primitives, and updateOdometry() only reads those.
+ */
+public class ModuleIOSim implements ModuleIO {
+    private SwerveModuleSim m_Sim;
+    private PIDController m_AnglePID;
+    private double m_DriveVolts;
+    private boolean m_IsDriveVelocity;
+    private double m_DriveVelocitySetpointMPS;
+    private double m_DriveFeedforwardVolts;
+    private double m_AngleSetpointDegrees;
+    private double m_AngleFeedforwardVolts;
+    private double m_DriveOffsetMeters;
+    private double m_AngleOffsetDegrees;
+    private volatile boolean m_OutputsEnabled;
+
+    /* Snapshot for the odometry thread, written after every step */
+    private volatile double m_DrivePositionMeters;
+    private volatile double m_DriveVelocityMPS;
+    private volatile double m_AngleDegrees;
+
+    public ModuleIOSim(){
+        m_Sim = new SwerveModuleSim();
+        double rotorPerDegree = SwerveConstants.angleGearRatio / 360.0;
+        m_AnglePID = new PIDController(SwerveConstants.angleKP * rotorPerDegree,
+                                       SwerveConstants.angleKI * rotorPerDegree,
+                                       SwerveConstants.angleKD * rotorPerDegree);
+        m_OutputsEnabled = true;
+    }
+
+    @Override
+    public void updateInputs(ModuleIOInputs inputs){
+        inputs.drivePositionMeters = m_Sim.getDrivePositionMeters() - m_DriveOffsetMeters;
+        inputs.driveVelocityMPS = m_Sim.getDriveVelocityMPS();
+        inputs.driveAppliedVolts = m_DriveVolts;
+        inputs.angleDegrees = m_Sim.getSteerPositionRotations() * 360.0 - m_AngleOffsetDegrees;
+        inputs.angleVelocityDegPerSec = m_Sim.getSteerVelocityRPS() * 360.0;
+        inputs.absoluteAngleDegrees = m_Sim.getSteerPositionRotations() * 360.0;
+    }
+
+    @Override
+    public void updateOdometry(double[] out){
+        out[0] = m_DrivePositionMeters;
+        out[1] = m_AngleDegrees;
+        out[2] = m_DriveVelocityMPS;
+    }
+
+    @Override
+    public void setDriveVoltage(double volts){
+        if(!m_OutputsEnabled){
+            return;
+        }
+        m_IsDriveVelocity = false;
+        m_DriveVolts = volts;
+    }
+
+    @Override
+    public void setDriveVelocity(double velocityMPS, double accelerationMPSS){
+        if(!m_OutputsEnabled){
+            return;
+        }
+        m_IsDriveVelocity = true;
+        m_DriveVelocitySetpointMPS = velocityMPS;
+        m_DriveFeedforwardVolts = SwerveConstants.driveKS * Math.signum(velocityMPS)
+                                  + SwerveConstants.driveKV * velocityMPS
+                                  + SwerveConstants.driveKA * accelerationMPSS;
+    }
+
+    @Override
+    public void setAngleDegrees(double degrees, double velocityDegPerSec){
+        if(!m_OutputsEnabled){
+            return;
+        }
+        m_AngleSetpointDegrees = degrees;
+        m_AngleFeedforwardVolts = SwerveConstants.angleKV * SwerveModule.degreesToFalcon(velocityDegPerSec);
+    }
+
+    @Override
+    public void setOutputsEnabled(boolean enabled){
+        m_OutputsEnabled = enabled;
+    }
+
+    @Override
+    public void seedPositions(DeviceConfigurator configurator, String name, double angleDegrees){
+        m_DriveOffsetMeters = m_Sim.getDrivePositionMeters();
+        m_AngleOffsetDegrees = m_Sim.getSteerPositionRotations() * 360.0 - angleDegrees;
+        publishSnapshot();
+    }
+
+    @Override
+    public void simulationPeriodic(double dtSeconds){
+        double angleDegrees = m_Sim.getSteerPositionRotations() * 360.0 - m_AngleOffsetDegrees;
+        double steerVolts = m_AnglePID.calculate(angleDegrees, m_AngleSetpointDegrees) + m_AngleFeedforwardVolts;
+        if(m_IsDriveVelocity){
+            // driveKP is per rotor rotation per second, like on the TalonFX
+            double error = SwerveModule.mpsToFalcon(m_DriveVelocitySetpointMPS - m_Sim.getDriveVelocityMPS());
+            m_DriveVolts = MathUtil.clamp(m_DriveFeedforwardVolts + SwerveConstants.driveKP * error,
+                                          -SwerveConstants.kNominal, SwerveConstants.kNominal);
+        }
+        m_Sim.update(m_DriveVolts, steerVolts, dtSeconds);
+        publishSnapshot();
+    }
+
+    private void publishSnapshot(){
+        m_DrivePositionMeters = m_Sim.getDrivePositionMeters() - m_DriveOffsetMeters;
+        m_DriveVelocityMPS = m_Sim.getDriveVelocityMPS();
+        m_AngleDegrees = m_Sim.getSteerPositionRotations() * 360.0 - m_AngleOffsetDegrees;
+    }
+}
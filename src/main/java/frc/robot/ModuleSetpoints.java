@@ -0,0 +1,127 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Preallocated primitive module setpoints (front left, front right, back left, back right). Does the same
+ * math as SwerveDriveKinematics.toSwerveModuleStates and desaturateWheelSpeeds, but fills these buffers
+ * in place instead of allocating new states every loop.
+ *
+ * <p>Given a loop period, the chassis speeds are first discretized like ChassisSpeeds.discretize, so a
+ * robot translating and rotating at once follows the commanded arc instead of drifting sideways, and the
+ * rate each module has to steer at to keep up with the rotating robot frame is filled in as a feedforward.
+ */
+public class ModuleSetpoints {
+    public static final int kNumModules = 4;
+
+    private double[] m_ModuleX;
+    private double[] m_ModuleY;
+
+    public double[] speeds;
+    public double[] anglesDegrees;
+    public double[] angularVelocitiesDegPerSec;
+
+    public ModuleSetpoints(){
+        Translation2d[] locations = { SwerveConstants.frontLeft,
+                                      SwerveConstants.frontRight,
+                                      SwerveConstants.backLeft,
+                                      SwerveConstants.backRight };
+        m_ModuleX = new double[kNumModules];
+        m_ModuleY = new double[kNumModules];
+        for(int i = 0; i < kNumModules; i++){
+            m_ModuleX[i] = locations[i].getX();
+            m_ModuleY[i] = locations[i].getY();
+        }
+        speeds = new double[kNumModules];
+        anglesDegrees = new double[kNumModules];
+        angularVelocitiesDegPerSec = new double[kNumModules];
+    }
+
+    /* Robot relative chassis speeds, module angles are held when the chassis is stopped like the WPILib kinematics */
+    public void fromChassisSpeeds(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond){
+        fromChassisSpeeds(vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond, 0.0);
+    }
+
+    /**
+     * Robot relative chassis speeds, discretized over {@code dtSeconds} when it is positive.
+     *
+     * <p>The steer rate feedforward is the part of each module's heading change that comes from the robot
+     * rotating under a constant field relative velocity, {@code -omega * (v_module . v_chassis) / |v_module|^2}.
+     * Changes in the commanded speeds themselves are left to the steer position loop.
+     */
+    public void fromChassisSpeeds(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond, double dtSeconds){
+        if(vxMetersPerSecond == 0.0 && vyMetersPerSecond == 0.0 && omegaRadiansPerSecond == 0.0){
+            for(int i = 0; i < kNumModules; i++){
+                speeds[i] = 0.0;
+                angularVelocitiesDegPerSec[i] = 0.0;
+            }
+            return;
+        }
+        double chassisVX = vxMetersPerSecond;
+        double chassisVY = vyMetersPerSecond;
+        if(dtSeconds > 0.0){
+            // Pose2d(v * dt, omega * dt).log() / dt without the allocations, see Pose2d.log
+            double dx = vxMetersPerSecond * dtSeconds;
+            double dy = vyMetersPerSecond * dtSeconds;
+            double dtheta = omegaRadiansPerSecond * dtSeconds;
+            double halfDtheta = dtheta / 2.0;
+            double cosMinusOne = Math.cos(dtheta) - 1.0;
+            double halfThetaByTanOfHalfDtheta = Math.abs(cosMinusOne) < 1.0e-9
+                                                ? 1.0 - dtheta * dtheta / 12.0
+                                                : -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+            chassisVX = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / dtSeconds;
+            chassisVY = (dy * halfThetaByTanOfHalfDtheta - dx * halfDtheta) / dtSeconds;
+        }
+        for(int i = 0; i < kNumModules; i++){
+            double vx = chassisVX - omegaRadiansPerSecond * m_ModuleY[i];
+            double vy = chassisVY + omegaRadiansPerSecond * m_ModuleX[i];
+            double speedSquared = vx * vx + vy * vy;
+            speeds[i] = Math.sqrt(speedSquared);
+            anglesDegrees[i] = Math.atan2(vy, vx) * SwerveConstants.RAD_TO_DEG;
+            angularVelocitiesDegPerSec[i] = dtSeconds > 0.0 && speedSquared > 1.0e-6
+                                            ? -omegaRadiansPerSecond * (vx * chassisVX + vy * chassisVY) / speedSquared * SwerveConstants.RAD_TO_DEG
+                                            : 0.0;
+        }
+    }
+
+    public void fromFieldRelativeSpeeds(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond, double robotAngleRadians){
+        fromFieldRelativeSpeeds(vxMetersPerSecond, vyMetersPerSecond, omegaRadiansPerSecond, robotAngleRadians, 0.0);
+    }
+
+    public void fromFieldRelativeSpeeds(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond, double robotAngleRadians, double dtSeconds){
+        double cos = Math.cos(robotAngleRadians);
+        double sin = Math.sin(robotAngleRadians);
+        fromChassisSpeeds(vxMetersPerSecond * cos + vyMetersPerSecond * sin,
+                          -vxMetersPerSecond * sin + vyMetersPerSecond * cos,
+                          omegaRadiansPerSecond,
+                          dtSeconds);
+    }
+
+    public void fromStates(SwerveModuleState[] states){
+        for(int i = 0; i < kNumModules; i++){
+            speeds[i] = states[i].speedMetersPerSecond;
+            anglesDegrees[i] = states[i].angle.getDegrees();
+            angularVelocitiesDegPerSec[i] = 0.0;
+        }
+    }
+
+    public void copyFrom(ModuleSetpoints other){
+        System.arraycopy(other.speeds, 0, speeds, 0, kNumModules);
+        System.arraycopy(other.anglesDegrees, 0, anglesDegrees, 0, kNumModules);
+        System.arraycopy(other.angularVelocitiesDegPerSec, 0, angularVelocitiesDegPerSec, 0, kNumModules);
+    }
+
+    public void desaturate(double maxSpeedMetersPerSecond){
+        double realMaxSpeed = 0.0;
+        for(int i = 0; i < kNumModules; i++){
+            realMaxSpeed = Math.max(realMaxSpeed, Math.abs(speeds[i]));
+        }
+        if(realMaxSpeed > maxSpeedMetersPerSecond){
+            for(int i = 0; i < kNumModules; i++){
+                speeds[i] = speeds[i] / realMaxSpeed * maxSpeedMetersPerSecond;
+            }
+        }
+    }
+}
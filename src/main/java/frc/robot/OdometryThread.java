@@ -0,0 +1,191 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.hal.NotifierJNI;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Waits on every drive/steer position signal and the gyro yaw as one synchronized batch and feeds the
+ * pose estimator at {@link SwerveConstants#odometryFrequency}. Anything else touching the pose estimator
+ * must hold the same lock. If the IO implementations have no signals to wait on (simulation or replay)
+ * the thread waits one period on a HAL notifier instead, which follows the simulated clock, so tests that
+ * step time with SimHooks get the same samples on every run. {@link ReplayRunner} never starts the thread
+ * and calls {@link #update(double)} once per recorded sample.
+ */
+public class OdometryThread extends Thread {
+    private SwerveModule[] m_Modules;
+    private SwerveModulePosition[] m_Positions; // last sample, guarded by m_Lock
+    private Rotation2d m_Yaw;
+    private double m_YawDegrees;
+    private GyroIO m_Gyro;
+    private BaseStatusSignal[] m_Signals;
+    private int m_Notifier; // HAL notifier handle, only used when there are no signals
+    private SwerveDrivePoseEstimator m_PoseEstimator;
+    private Lock m_Lock;
+    private DriveRecorder m_Recorder; // null when replaying
+    private double[] m_Record;
+
+    private volatile int m_SuccessfulUpdates;
+    private volatile int m_FailedUpdates;
+    private volatile double m_LastTimestamp;
+
+    public OdometryThread(SwerveModule[] modules, GyroIO gyro, SwerveDrivePoseEstimator poseEstimator, Lock lock, DriveRecorder recorder){
+        super("OdometryThread");
+        setDaemon(true);
+        m_Modules = modules;
+        m_PoseEstimator = poseEstimator;
+        m_Lock = lock;
+        m_Recorder = recorder;
+        m_Record = new double[DriveRecorder.kOdometrySize];
+        m_Positions = new SwerveModulePosition[modules.length];
+        m_Gyro = gyro;
+
+        // Typically 4 signals per module (drive/steer position and velocity) plus yaw and yaw rate
+        List<BaseStatusSignal> signals = new ArrayList<>();
+        for(SwerveModule module : modules){
+            signals.addAll(Arrays.asList(module.getOdometrySignals()));
+        }
+        signals.addAll(Arrays.asList(gyro.getOdometrySignals()));
+        m_Signals = signals.toArray(new BaseStatusSignal[0]);
+        if(m_Signals.length == 0){
+            m_Notifier = NotifierJNI.initializeNotifier();
+            NotifierJNI.setNotifierName(m_Notifier, "OdometryThread");
+        }
+
+        // Something to reset to before the first sample arrives
+        m_Yaw = new Rotation2d();
+        m_YawDegrees = 0.0;
+        sample();
+    }
+
+    @Override
+    public void run(){
+        if(m_Signals.length > 0){
+            BaseStatusSignal.setUpdateFrequencyForAll(SwerveConstants.odometryFrequency, m_Signals);
+        }
+        Threads.setCurrentThreadPriority(true, 1);
+
+        long periodMicros = (long)(1.0e6 / SwerveConstants.odometryFrequency);
+        long nextAlarmMicros = RobotController.getFPGATime();
+        while(!isInterrupted()){
+            double timestamp;
+            if(m_Signals.length > 0){
+                // Blocks until every signal has a new frame, so all samples share the same CAN timestamp
+                StatusCode status = BaseStatusSignal.waitForAll(2.0 / SwerveConstants.odometryFrequency, m_Signals);
+                if(!status.isOK()){
+                    m_FailedUpdates++;
+                    continue;
+                }
+
+                double latency = 0.0;
+                for(BaseStatusSignal signal : m_Signals){
+                    latency += signal.getTimestamp().getLatency();
+                }
+                timestamp = Timer.getFPGATimestamp() - latency / m_Signals.length;
+            } else {
+                nextAlarmMicros += periodMicros;
+                NotifierJNI.updateNotifierAlarm(m_Notifier, nextAlarmMicros);
+                long nowMicros = NotifierJNI.waitForNotifierAlarm(m_Notifier);
+                if(nowMicros == 0){
+                    return; // stopped by close()
+                }
+                timestamp = nowMicros / 1.0e6;
+            }
+
+            update(timestamp);
+        }
+    }
+
+    /* Stops the thread and waits for it to exit */
+    public void close(){
+        interrupt();
+        if(m_Notifier != 0){
+            NotifierJNI.stopNotifier(m_Notifier);
+        }
+        try{
+            join();
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        if(m_Notifier != 0){
+            NotifierJNI.cleanNotifier(m_Notifier);
+            m_Notifier = 0;
+        }
+    }
+
+    /* Feeds the pose estimator one sample of the IOs' latest odometry readings taken at timestamp */
+    public void update(double timestamp){
+        m_Lock.lock();
+        try{
+            sample();
+            m_PoseEstimator.updateWithTime(timestamp, m_Yaw, m_Positions);
+        } finally {
+            m_Lock.unlock();
+        }
+        m_LastTimestamp = timestamp;
+        m_SuccessfulUpdates++;
+
+        if(m_Recorder == null){
+            return;
+        }
+        m_Record[0] = m_YawDegrees;
+        for(int i = 0; i < m_Modules.length; i++){
+            m_Record[1 + i * 3] = m_Positions[i].distanceMeters;
+            m_Record[2 + i * 3] = m_Positions[i].angle.getDegrees();
+            m_Record[3 + i * 3] = m_Modules[i].getOdometryVelocityMPS();
+        }
+        m_Recorder.record(DriveRecorder.kOdometry, timestamp, m_Record);
+    }
+
+    /* Reads the latest positions and yaw, hold m_Lock unless the thread has not started */
+    private void sample(){
+        for(int i = 0; i < m_Modules.length; i++){
+            m_Positions[i] = m_Modules[i].getOdometryPosition();
+        }
+        double yawDegrees = m_Gyro.getOdometryYawDegrees();
+        if(yawDegrees != m_YawDegrees){
+            m_Yaw = Rotation2d.fromDegrees(yawDegrees);
+            m_YawDegrees = yawDegrees;
+        }
+    }
+
+    /**
+     * Resets the pose estimator to pose at the positions and yaw of the last sample, the same ones the
+     * estimator was last updated with. Resetting with older readings would turn the motion since then into
+     * a false offset.
+     */
+    public void resetPosition(Pose2d pose){
+        m_Lock.lock();
+        try{
+            m_PoseEstimator.resetPosition(m_Yaw, m_Positions, pose);
+        } finally {
+            m_Lock.unlock();
+        }
+    }
+
+    public int getSuccessfulUpdates(){
+        return m_SuccessfulUpdates;
+    }
+
+    public int getFailedUpdates(){
+        return m_FailedUpdates;
+    }
+
+    public double getLastTimestamp(){
+        return m_LastTimestamp;
+    }
+}
@@ -0,0 +1,228 @@
+package frc.robot;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.AutoConstants;
+
+/**
+ * Plans paths to arbitrary field poses on a {@link FieldGrid} with Theta*, an A* variant that connects
+ * each cell straight to its grandparent whenever there is line of sight, so paths come out as a few
+ * any-angle segments instead of a staircase. Searches run on one background thread and hand back a
+ * {@link UniformTrajectory} within the AutoConstants limits, so requesting a path never blocks the robot loop.
+ *
+ * <p>The corners of every path found are cached by start cell and goal cell. A repeated request only has to
+ * re-time those corners between the exact start and goal poses, which still runs on the search thread.
+ */
+public class Pathfinder {
+    private static final int[] kColumnSteps = { 1, 1, 0, -1, -1, -1, 0, 1 };
+    private static final int[] kRowSteps = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    private FieldGrid m_Grid;
+    private ExecutorService m_Executor;
+    private Map<Long, double[]> m_Cache; // interleaved x, y of the corners between start and goal
+
+    /* Search state, only touched by the search thread and reused between searches */
+    private double[] m_Cost;
+    private int[] m_Parent;
+    private int[] m_Visited; // search number that last reached the cell, so nothing is cleared between searches
+    private boolean[] m_Closed;
+    private int m_Search;
+    private int[] m_Heap;
+    private double[] m_HeapKey;
+    private int m_HeapSize;
+
+    public Pathfinder(FieldGrid grid){
+        m_Grid = grid;
+        m_Executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Pathfinder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_Cache = new ConcurrentHashMap<>();
+        m_Cost = new double[grid.size()];
+        m_Parent = new int[grid.size()];
+        m_Visited = new int[grid.size()];
+        m_Closed = new boolean[grid.size()];
+        m_Heap = new int[grid.size()];
+        m_HeapKey = new double[grid.size()];
+    }
+
+    /**
+     * Trajectory from start to goal, completed exceptionally if the goal cannot be reached. Completes
+     * without a search if the path between these two cells was found before.
+     */
+    public CompletableFuture<UniformTrajectory> findPath(Pose2d start, Pose2d goal){
+        int startCell = m_Grid.nearestFree(m_Grid.cellAt(start.getX(), start.getY()));
+        int goalCell = m_Grid.nearestFree(m_Grid.cellAt(goal.getX(), goal.getY()));
+        if(startCell < 0 || goalCell < 0){
+            return CompletableFuture.failedFuture(new IllegalStateException("No free cell to plan from"));
+        }
+        long key = (long)startCell * m_Grid.size() + goalCell;
+        // Even a cache hit allocates a whole trajectory, so both cases are built off the robot thread
+        return CompletableFuture.supplyAsync(() -> {
+            double[] corners = m_Cache.get(key);
+            if(corners == null){
+                corners = search(startCell, goalCell);
+                if(corners == null){
+                    throw new IllegalStateException("No path to (" + goal.getX() + ", " + goal.getY() + ")");
+                }
+                m_Cache.put(key, corners);
+            }
+            return toTrajectory(start, goal, corners);
+        }, m_Executor);
+    }
+
+    public void clearCache(){
+        m_Cache.clear();
+    }
+
+    private UniformTrajectory toTrajectory(Pose2d start, Pose2d goal, double[] corners){
+        int points = corners.length / 2 + 2;
+        double[] x = new double[points];
+        double[] y = new double[points];
+        x[0] = start.getX();
+        y[0] = start.getY();
+        for(int i = 0; i < corners.length / 2; i++){
+            x[i + 1] = corners[2 * i];
+            y[i + 1] = corners[2 * i + 1];
+        }
+        x[points - 1] = goal.getX();
+        y[points - 1] = goal.getY();
+        return UniformTrajectory.fromPolyline(x, y,
+                                              start.getRotation().getRadians(),
+                                              goal.getRotation().getRadians(),
+                                              AutoConstants.MaxSpeedMetersPerSecond,
+                                              AutoConstants.MaxAccelMetersPerSecondSquared,
+                                              AutoConstants.MaxAngularSpeedMetersPerSecond,
+                                              UniformTrajectory.kDefaultDt);
+    }
+
+    /* Theta* from start to goal, the corners strictly between them or null if the goal is unreachable */
+    private double[] search(int start, int goal){
+        m_Search++;
+        m_HeapSize = 0;
+        visit(start, 0.0, start);
+        push(start, heuristic(start, goal));
+        while(m_HeapSize > 0){
+            int cell = pop();
+            if(m_Closed[cell]){
+                continue;
+            }
+            m_Closed[cell] = true;
+            if(cell == goal){
+                return corners(start, goal);
+            }
+            int column = m_Grid.column(cell);
+            int row = m_Grid.row(cell);
+            int parent = m_Parent[cell];
+            for(int i = 0; i < kColumnSteps.length; i++){
+                int c = column + kColumnSteps[i];
+                int r = row + kRowSteps[i];
+                if(c < 0 || r < 0 || c >= m_Grid.getColumns() || r >= m_Grid.getRows()){
+                    continue;
+                }
+                int next = r * m_Grid.getColumns() + c;
+                if(m_Grid.isBlocked(next) || (m_Visited[next] == m_Search && m_Closed[next])){
+                    continue;
+                }
+                // Skip the cell in between if the parent can see the neighbor directly
+                int from = m_Grid.hasLineOfSight(m_Grid.centerX(parent), m_Grid.centerY(parent),
+                                                 m_Grid.centerX(next), m_Grid.centerY(next)) ? parent : cell;
+                if(from == cell && !m_Grid.hasLineOfSight(m_Grid.centerX(cell), m_Grid.centerY(cell),
+                                                          m_Grid.centerX(next), m_Grid.centerY(next))){
+                    continue;
+                }
+                double cost = m_Cost[from] + distance(from, next);
+                if(m_Visited[next] != m_Search || cost < m_Cost[next]){
+                    visit(next, cost, from);
+                    push(next, cost + heuristic(next, goal));
+                }
+            }
+        }
+        return null;
+    }
+
+    private void visit(int cell, double cost, int parent){
+        if(m_Visited[cell] != m_Search){
+            m_Visited[cell] = m_Search;
+            m_Closed[cell] = false;
+        }
+        m_Cost[cell] = cost;
+        m_Parent[cell] = parent;
+    }
+
+    private double[] corners(int start, int goal){
+        int count = 0;
+        for(int cell = m_Parent[goal]; cell != start; cell = m_Parent[cell]){
+            count++;
+        }
+        double[] corners = new double[2 * count];
+        int index = count - 1;
+        for(int cell = m_Parent[goal]; cell != start; cell = m_Parent[cell]){
+            corners[2 * index] = m_Grid.centerX(cell);
+            corners[2 * index + 1] = m_Grid.centerY(cell);
+            index--;
+        }
+        return corners;
+    }
+
+    private double distance(int a, int b){
+        return Math.hypot(m_Grid.centerX(a) - m_Grid.centerX(b), m_Grid.centerY(a) - m_Grid.centerY(b));
+    }
+
+    private double heuristic(int cell, int goal){
+        return distance(cell, goal);
+    }
+
+    /* Binary min heap on f, stale entries are skipped when popped instead of being decreased in place */
+    private void push(int cell, double key){
+        if(m_HeapSize == m_Heap.length){
+            m_Heap = Arrays.copyOf(m_Heap, m_Heap.length * 2);
+            m_HeapKey = Arrays.copyOf(m_HeapKey, m_HeapKey.length * 2);
+        }
+        int index = m_HeapSize++;
+        while(index > 0){
+            int parent = (index - 1) / 2;
+            if(m_HeapKey[parent] <= key){
+                break;
+            }
+            m_Heap[index] = m_Heap[parent];
+            m_HeapKey[index] = m_HeapKey[parent];
+            index = parent;
+        }
+        m_Heap[index] = cell;
+        m_HeapKey[index] = key;
+    }
+
+    private int pop(){
+        int top = m_Heap[0];
+        m_HeapSize--;
+        int cell = m_Heap[m_HeapSize];
+        double key = m_HeapKey[m_HeapSize];
+        int index = 0;
+        while(true){
+            int child = 2 * index + 1;
+            if(child >= m_HeapSize){
+                break;
+            }
+            if(child + 1 < m_HeapSize && m_HeapKey[child + 1] < m_HeapKey[child]){
+                child++;
+            }
+            if(m_HeapKey[child] >= key){
+                break;
+            }
+            m_Heap[index] = m_Heap[child];
+            m_HeapKey[index] = m_HeapKey[child];
+            index = child;
+        }
+        m_Heap[index] = cell;
+        m_HeapKey[index] = key;
+        return top;
+    }
+}
@@ -0,0 +1,247 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Offline replay of a {@link DriveRecorder} log, run on a workstation with {@code ./gradlew replay}. The
+ * recorded odometry samples are played back through {@link ModuleIOReplay} and {@link GyroIOReplay} into
+ * the same {@link SwerveModule} and {@link OdometryThread} code the robot runs, with the thread stepped once
+ * per sample instead of started. Together with the recorded vision measurements and odometry resets they
+ * are fed through a fresh {@link SwerveDrivePoseEstimator} in the order they were recorded, and at every
+ * recorded drive command the {@link TrajectoryFollower} is evaluated against the replayed pose. No HAL,
+ * NetworkTables or timing is involved, so a match replays in well under a second and the same log always
+ * gives the same output.
+ *
+ * <pre>
+ * replay [options] &lt;log.wpilog&gt;...
+ *   --state-std x,y,theta     odometry std devs, default SwerveConstants.stateStdDevs
+ *   --vision-scale k          multiplies every recorded vision std dev, default 1
+ *   --trajectory file.bin     trajectory to follow, no follower output without it
+ *   --start seconds           FPGA time the trajectory started, default the first drive command
+ *   --out dir                 where the CSVs go, default next to each log
+ * </pre>
+ *
+ * Writes {@code <log>_pose.csv} (replayed against recorded pose at every recorded pose) and, with a
+ * trajectory, {@code <log>_command.csv} (follower output at every recorded drive command).
+ */
+public final class ReplayRunner {
+    private Vector<N3> m_StateStdDevs = SwerveConstants.stateStdDevs;
+    private double m_VisionScale = 1.0;
+    private UniformTrajectory m_Trajectory;
+    private double m_TrajectoryStart = Double.NaN;
+    private File m_OutDir;
+
+    /* Per log state */
+    private ModuleIOReplay[] m_ModuleIOs;
+    private SwerveModule[] m_Modules;
+    private GyroIOReplay m_GyroIO;
+    private SwerveDrivePoseEstimator m_PoseEstimator;
+    private OdometryThread m_Odometry;
+    private TrajectoryFollower m_Follower;
+    private TrajectorySample m_Sample;
+    private double m_SquaredError;
+    private int m_ErrorSamples;
+
+    public static void main(String[] args) throws IOException {
+        ReplayRunner runner = new ReplayRunner();
+        int logs = 0;
+        for(int i = 0; i < args.length; i++){
+            switch(args[i]){
+                case "--state-std":
+                    String[] values = args[++i].split(",");
+                    runner.m_StateStdDevs = VecBuilder.fill(Double.parseDouble(values[0]), Double.parseDouble(values[1]), Double.parseDouble(values[2]));
+                    break;
+                case "--vision-scale":
+                    runner.m_VisionScale = Double.parseDouble(args[++i]);
+                    break;
+                case "--trajectory":
+                    runner.m_Trajectory = UniformTrajectory.fromBinary(BinaryTrajectory.fromFile(Paths.get(args[++i])), UniformTrajectory.kDefaultDt);
+                    break;
+                case "--start":
+                    runner.m_TrajectoryStart = Double.parseDouble(args[++i]);
+                    break;
+                case "--out":
+                    runner.m_OutDir = new File(args[++i]);
+                    runner.m_OutDir.mkdirs();
+                    break;
+                default:
+                    runner.replay(new File(args[i]));
+                    logs++;
+                    break;
+            }
+        }
+        if(logs == 0){
+            System.err.println("usage: replay [--state-std x,y,theta] [--vision-scale k] [--trajectory file.bin] [--start seconds] [--out dir] <log.wpilog>...");
+            System.exit(1);
+        }
+    }
+
+    public void replay(File log) throws IOException {
+        DataLogReader reader = new DataLogReader(log.getPath());
+        if(!reader.isValid()){
+            throw new IOException(log + " is not a wpilog file");
+        }
+        long startNanos = System.nanoTime();
+
+        m_ModuleIOs = new ModuleIOReplay[ModuleSetpoints.kNumModules];
+        m_Modules = new SwerveModule[ModuleSetpoints.kNumModules];
+        for(int i = 0; i < m_Modules.length; i++){
+            m_ModuleIOs[i] = new ModuleIOReplay();
+            m_Modules[i] = new SwerveModule(m_ModuleIOs[i]);
+        }
+        m_GyroIO = new GyroIOReplay();
+        m_PoseEstimator = null;
+        m_Odometry = null;
+        m_Follower = new TrajectoryFollower();
+        m_Sample = new TrajectorySample();
+        m_SquaredError = 0.0;
+        m_ErrorSamples = 0;
+        double trajectoryStart = m_TrajectoryStart;
+        int odometrySamples = 0;
+
+        File outDir = m_OutDir != null ? m_OutDir : log.getAbsoluteFile().getParentFile();
+        String baseName = log.getName().replaceFirst("\\.wpilog$", "");
+        PrintWriter poseOut = new PrintWriter(new File(outDir, baseName + "_pose.csv"));
+        PrintWriter commandOut = m_Trajectory != null ? new PrintWriter(new File(outDir, baseName + "_command.csv")) : null;
+        poseOut.println("time,x,y,heading,recorded_x,recorded_y,recorded_heading");
+        if(commandOut != null){
+            commandOut.println("time,vx,vy,omega,target_x,target_y,target_heading");
+        }
+
+        Map<Integer, String> entries = new HashMap<>();
+        for(DataLogRecord record : reader){
+            if(record.isStart()){
+                DataLogRecord.StartRecordData start = record.getStartData();
+                entries.put(start.entry, start.name);
+                continue;
+            }
+            if(record.isControl()){
+                continue;
+            }
+            String name = entries.get(record.getEntry());
+            if(name == null){
+                continue;
+            }
+            double timestamp = record.getTimestamp() / 1.0e6;
+            switch(name){
+                case "Drive/Gyro/Yaw":
+                    m_GyroIO.getReplayedInputs().yawDegrees = record.getDouble();
+                    break;
+                case "Drive/Modules/Distance":
+                    double[] distances = record.getDoubleArray();
+                    for(int i = 0; i < m_ModuleIOs.length; i++){
+                        m_ModuleIOs[i].getReplayedInputs().drivePositionMeters = distances[i];
+                    }
+                    break;
+                case "Drive/Modules/Angle":
+                    double[] angles = record.getDoubleArray();
+                    for(int i = 0; i < m_ModuleIOs.length; i++){
+                        m_ModuleIOs[i].getReplayedInputs().angleDegrees = angles[i];
+                    }
+                    break;
+                case "Drive/Modules/Velocity":
+                    // The four entries of one odometry record share a timestamp and velocity is written last,
+                    // so yaw, distance and angle of this sample are already in
+                    double[] velocities = record.getDoubleArray();
+                    for(int i = 0; i < m_ModuleIOs.length; i++){
+                        m_ModuleIOs[i].getReplayedInputs().driveVelocityMPS = velocities[i];
+                    }
+                    updateOdometry(timestamp);
+                    odometrySamples++;
+                    break;
+                case "Drive/ResetPose":
+                    if(m_Odometry != null){
+                        m_Odometry.resetPosition(unpackPose(record));
+                    }
+                    break;
+                case "Drive/Vision/Measurement":
+                    if(m_PoseEstimator != null){
+                        // x, y, heading, then the std devs, see DriveRecorder.kVision
+                        double[] vision = record.getDoubleArray();
+                        m_PoseEstimator.addVisionMeasurement(new Pose2d(vision[0], vision[1], new Rotation2d(vision[2])), timestamp,
+                                                             VecBuilder.fill(vision[3] * m_VisionScale,
+                                                                             vision[4] * m_VisionScale,
+                                                                             vision[5] * m_VisionScale));
+                    }
+                    break;
+                case "Drive/Pose":
+                    if(m_PoseEstimator != null){
+                        Pose2d recorded = unpackPose(record);
+                        Pose2d replayed = m_PoseEstimator.getEstimatedPosition();
+                        poseOut.printf("%.6f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f%n", timestamp,
+                                       replayed.getX(), replayed.getY(), replayed.getRotation().getRadians(),
+                                       recorded.getX(), recorded.getY(), recorded.getRotation().getRadians());
+                        double error = replayed.getTranslation().getDistance(recorded.getTranslation());
+                        m_SquaredError += error * error;
+                        m_ErrorSamples++;
+                    }
+                    break;
+                case "Drive/Modules/DesiredStates":
+                    if(commandOut != null && m_PoseEstimator != null){
+                        if(Double.isNaN(trajectoryStart)){
+                            trajectoryStart = timestamp;
+                        }
+                        double t = timestamp - trajectoryStart;
+                        if(t >= 0.0 && t <= m_Trajectory.getTotalTimeSeconds()){
+                            m_Trajectory.sample(t, m_Sample);
+                            m_Follower.calculate(m_PoseEstimator.getEstimatedPosition(), m_Sample);
+                            commandOut.printf("%.6f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f%n", timestamp,
+                                              m_Follower.getVX(), m_Follower.getVY(), m_Follower.getOmega(),
+                                              m_Sample.xMeters, m_Sample.yMeters, m_Sample.headingRadians);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        poseOut.close();
+        if(commandOut != null){
+            commandOut.close();
+        }
+
+        double rmsError = m_ErrorSamples > 0 ? Math.sqrt(m_SquaredError / m_ErrorSamples) : Double.NaN;
+        System.out.printf("%s: %d odometry samples in %.1f ms, RMS difference from recorded pose %.3f m%n",
+                          log.getName(), odometrySamples, (System.nanoTime() - startNanos) / 1.0e6, rmsError);
+    }
+
+    private void updateOdometry(double timestamp){
+        if(m_Odometry == null){
+            // Start at the origin with the first sample's readings, so the first update is not a jump
+            SwerveModulePosition[] positions = new SwerveModulePosition[m_Modules.length];
+            for(int i = 0; i < positions.length; i++){
+                positions[i] = new SwerveModulePosition();
+            }
+            m_PoseEstimator = new SwerveDrivePoseEstimator(SwerveConstants.kinematics, new Rotation2d(), positions, new Pose2d(),
+                                                           m_StateStdDevs, SwerveConstants.visionStdDevs);
+            m_Odometry = new OdometryThread(m_Modules, m_GyroIO, m_PoseEstimator, new ReentrantLock(), null);
+            m_Odometry.resetPosition(new Pose2d(0.0, 0.0, Rotation2d.fromDegrees(m_GyroIO.getOdometryYawDegrees())));
+        }
+        m_Odometry.update(timestamp);
+    }
+
+    private static Pose2d unpackPose(DataLogRecord record){
+        return Pose2d.struct.unpack(ByteBuffer.wrap(record.getRaw()).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private ReplayRunner() {}
+}
@@ -46,12 +46,22 @@ public class Robot extends TimedRobot {
     CommandScheduler.getInstance().run();
   }
 
+  /* Times the whole loop, so work in the mode specific periodic functions is counted too */
+  @Override
+  protected void loopFunc() {
+    LoopProfiler.beginLoop();
+    super.loopFunc();
+    LoopProfiler.endLoop();
+  }
+
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
   public void disabledInit() {}
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    m_robotContainer.disabledPeriodic();
+  }
 
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
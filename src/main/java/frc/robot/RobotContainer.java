@@ -4,15 +4,22 @@
 
 package frc.robot;
 
+import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.ControllerConstants;
 import frc.robot.Constants.SwerveConstants;
-import frc.robot.commands.Autos;
+import frc.robot.Constants.VisionConstants;
 import frc.robot.subsystems.ExampleSubsystem;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.commands.command_DriveTeleop;
+import frc.robot.commands.command_DriveToPose;
 import frc.robot.subsystems.subsystem_DriveTrain;
+import frc.robot.subsystems.subsystem_Vision;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Joystick;
 // import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
@@ -41,14 +48,20 @@ public class RobotContainer {
   private final int zeroGyroButton = ControllerConstants.xboxY;
   private final int changeThrottleButton = ControllerConstants.xboxRightJoyPress;
   private final int parkButton = ControllerConstants.xboxA;
+  private final int driveToScoreButton = ControllerConstants.xboxB;
 
   /* Driver Buttons */
   private final JoystickButton zeroGyro = new JoystickButton(driver, zeroGyroButton);
   private final JoystickButton changeThrottle = new JoystickButton(driver, changeThrottleButton);
   private final JoystickButton park = new JoystickButton(driver, parkButton);
+  private final JoystickButton driveToScore = new JoystickButton(driver, driveToScoreButton);
 
   /* Subsystems */
   private final subsystem_DriveTrain m_DriveTrain = new subsystem_DriveTrain();
+  private final subsystem_Vision m_Vision = new subsystem_Vision(m_DriveTrain);
+  private final Pathfinder m_Pathfinder = new Pathfinder(FieldGrid.load());
+  private final AutoRegistry m_AutoRegistry = new AutoRegistry(m_DriveTrain);
+  private final WarmUp m_WarmUp = new WarmUp(m_DriveTrain);
 
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
@@ -59,6 +72,7 @@ public class RobotContainer {
                                                           () -> {return -driver.getRawAxis(rotationAxis);},
                                                           () -> {return driver.getRawButtonPressed(ControllerConstants.xboxLB);},
                                                           () -> {return driver.getRawButtonPressed(ControllerConstants.xboxRB);},
+                                                          () -> {return driver.getPOV();},
                                                           () -> {return SwerveConstants.isFieldRelative;},
                                                           () -> {return SwerveConstants.isOpenLoop;}));
     configureBindings();
@@ -86,6 +100,16 @@ public class RobotContainer {
     zeroGyro.onTrue(m_DriveTrain.zeroGyroInstantCommand());
     changeThrottle.onTrue(m_DriveTrain.toggleThrottleInstantCommand());
     park.onTrue(m_DriveTrain.toggleParkCommand());
+    driveToScore.whileTrue(new command_DriveToPose(m_DriveTrain, m_Pathfinder, this::getScoringPose));
+  }
+
+  /* ScoringDistance in front of our speaker tag, facing it */
+  private Pose2d getScoringPose(){
+    boolean isBlue = DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue) == DriverStation.Alliance.Blue;
+    Pose2d tag = VisionConstants.kTagLayout.getTagPose(isBlue ? AutoConstants.ScoringTagBlue : AutoConstants.ScoringTagRed)
+                                           .get().toPose2d();
+    Translation2d offset = new Translation2d(AutoConstants.ScoringDistance, tag.getRotation());
+    return new Pose2d(tag.getTranslation().plus(offset), tag.getRotation().plus(Rotation2d.fromDegrees(180.0)));
   }
 
   /**
@@ -94,7 +118,13 @@ public class RobotContainer {
    * @return the command to run in autonomous
    */
   public Command getAutonomousCommand() {
-    // An example command will be run in autonomous
-    return Autos.exampleAuto(m_exampleSubsystem);
+    // Built while disabled, see AutoRegistry
+    return m_AutoRegistry.getSelected();
+  }
+
+  /* Work that has to happen while disabled, before a match starts */
+  public void disabledPeriodic() {
+    m_AutoRegistry.poll();
+    m_WarmUp.run();
   }
 }
@@ -1,92 +1,191 @@
 package frc.robot;
 
-import com.ctre.phoenix6.signals.NeutralModeValue;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.configs.CANcoderConfiguration;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.PositionVoltage;
-import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.BaseStatusSignal;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Timer;
 import frc.robot.Constants.SwerveConstants;
+import frc.robot.ModuleIO.ModuleIOInputs;
 // import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 public class SwerveModule {
-    private TalonFX m_DriveMotor;
-    private TalonFX m_AngleMotor;
-    private CANcoder m_CANCoder;
+    private static final double kMaxAccelerationDt = 0.1; // seconds, older commands give no acceleration feedforward
+
+    private ModuleIO m_IO;
+    private ModuleIOInputs m_Inputs;
+    private SwerveModuleState m_State;
+    private SwerveModulePosition m_Position;
+    private Rotation2d m_Angle; // rebuilt only when the measured angle changes
+    private double m_AngleDegrees;
     private double m_LastAngle;
-    private double m_AngleOffset;
+    private volatile double m_MeasuredAngleDegrees; // read by the drive loop, which may run on its own thread
     private SimpleMotorFeedforward m_Feedforward;
-    private HardwareConfig m_Settings;
+    private double m_LastSpeed;
+    private double m_LastSpeedTimestamp;
+
+    /* Reused every loop so the drive path does not allocate */
+    private double[] m_Optimized;
 
-    public SwerveModule(double[] module){
-        m_DriveMotor = new TalonFX((int)module[0], "DriveCANivore");
-        m_AngleMotor = new TalonFX((int)module[1], "DriveCANivore");
-        m_CANCoder = new CANcoder((int)module[2], "DriveCANivore");
-        m_AngleOffset = module[3];
+    /* Only touched by the odometry thread */
+    private SwerveModulePosition m_OdometryPosition;
+    private double m_OdometryAngleDegrees;
+    private double[] m_OdometrySample;
+
+    public SwerveModule(ModuleIO io){
+        m_IO = io;
+        m_Inputs = new ModuleIOInputs();
+        m_State = new SwerveModuleState();
+        m_Position = new SwerveModulePosition();
+        m_Angle = m_State.angle;
+        m_AngleDegrees = 0.0;
         m_Feedforward = new SimpleMotorFeedforward(SwerveConstants.driveKS, 
                                                 SwerveConstants.driveKV,
                                                 SwerveConstants.driveKA);
-        
-        m_Settings = new HardwareConfig();
-
-        /* CANCoder Config */
-
-        // new __Configuration() replaces configFactoryDefault()
-        m_CANCoder.getConfigurator().apply(new CANcoderConfiguration());
-        m_CANCoder.getConfigurator().apply(m_Settings.swerveCANCoderConfig);
-
-        /* Angle Motor Config */
-        m_AngleMotor.getConfigurator().apply(new TalonFXConfiguration());
-        m_AngleMotor.getConfigurator().apply(m_Settings.swerveAngleFXConfig);
-        m_AngleMotor.setPosition(0.0);
-        
-        m_AngleMotor.setInverted(SwerveConstants.angleMotorInvert);
-        m_AngleMotor.setNeutralMode(NeutralModeValue.Coast);
-        // m_AngleMotor.setControl(new PositionVoltage(degreesToFalcon(m_AngleOffset - getCANCoder().getDegrees())));
-        m_AngleMotor.setPosition(degreesToFalcon(getCANCoder().getDegrees() - m_AngleOffset));
-    
-        /* Drive Motor Config */
-        m_DriveMotor.getConfigurator().apply(new TalonFXConfiguration());
-        m_DriveMotor.getConfigurator().apply(m_Settings.swerveDriveFXConfig);
-        m_DriveMotor.setInverted(SwerveConstants.driveMotorInvert);
-        m_DriveMotor.setNeutralMode(NeutralModeValue.Brake);
-        m_DriveMotor.setPosition(0.0);
-        m_LastAngle = getState().angle.getDegrees();
+        m_Optimized = new double[2];
+        m_OdometryPosition = new SwerveModulePosition();
+        m_OdometrySample = new double[3];
+    }
+
+    /**
+     * Takes this loop's snapshot, call once at the start of the loop after refreshing
+     * {@link #getInputSignals()}. Everything else in the loop reads the snapshot, so all consumers see the
+     * same values.
+     */
+    public void updateInputs(){
+        m_IO.updateInputs(m_Inputs);
+        setSnapshot(m_Inputs.drivePositionMeters, m_Inputs.driveVelocityMPS, m_Inputs.angleDegrees);
+    }
+
+    /* Updates the state and position in place, Rotation2d is immutable so it is only replaced when the angle moved */
+    private void setSnapshot(double positionMeters, double velocityMPS, double angleDegrees){
+        if(angleDegrees != m_AngleDegrees){
+            m_Angle = Rotation2d.fromDegrees(angleDegrees);
+            m_AngleDegrees = angleDegrees;
+        }
+        m_State.speedMetersPerSecond = velocityMPS;
+        m_State.angle = m_Angle;
+        m_Position.distanceMeters = positionMeters;
+        m_Position.angle = m_Angle;
+        m_MeasuredAngleDegrees = angleDegrees;
+    }
+
+    public BaseStatusSignal[] getInputSignals(){
+        return m_IO.getInputSignals();
+    }
+
+    public ModuleIOInputs getInputs(){
+        return m_Inputs;
+    }
+
+    public void addConfigurations(DeviceConfigurator configurator, String name){
+        m_IO.addConfigurations(configurator, name);
+    }
+
+    public BaseStatusSignal[] getReadySignals(){
+        return m_IO.getReadySignals();
+    }
+
+    /* Zeroes the drive encoder and starts the snapshot from the absolute angle, call once the devices are ready */
+    public void seedPositions(DeviceConfigurator configurator, String name){
+        m_IO.updateInputs(m_Inputs);
+        double angleDegrees = m_Inputs.absoluteAngleDegrees;
+        m_IO.seedPositions(configurator, name, angleDegrees);
+        m_Inputs.drivePositionMeters = 0.0;
+        m_Inputs.angleDegrees = angleDegrees;
+        setSnapshot(0.0, m_Inputs.driveVelocityMPS, angleDegrees);
+        m_LastAngle = angleDegrees;
+    }
+
+    public BaseStatusSignal[] getOdometrySignals(){
+        return m_IO.getOdometrySignals();
+    }
+
+    /* Latency compensated position from the last synchronized refresh, only the odometry thread should call this */
+    public SwerveModulePosition getOdometryPosition(){
+        m_IO.updateOdometry(m_OdometrySample);
+        m_OdometryPosition.distanceMeters = m_OdometrySample[0];
+        if(m_OdometrySample[1] != m_OdometryAngleDegrees){
+            m_OdometryPosition.angle = Rotation2d.fromDegrees(m_OdometrySample[1]);
+            m_OdometryAngleDegrees = m_OdometrySample[1];
+        }
+        return m_OdometryPosition;
+    }
+
+    /* Drive velocity from the same sample as getOdometryPosition(), only the odometry thread should call this */
+    public double getOdometryVelocityMPS(){
+        return m_OdometrySample[2];
+    }
+
+    /* Steer angle and drive velocity from this loop's inputs, no CAN read */
+    public double getAngleDegrees(){
+        return m_Inputs.angleDegrees;
+    }
+
+    public double getVelocityMPS(){
+        return m_Inputs.driveVelocityMPS;
+    }
+
+    public double getDriveVoltage(){
+        return m_Inputs.driveAppliedVolts;
+    }
+
+    public double getAngleErrorDegrees(){
+        return m_Inputs.angleErrorDegrees;
     }
 
     public double getTurnCounts(){
-        return m_AngleMotor.getPosition().getValueAsDouble() * 360.0;
+        return degreesToFalcon(m_Inputs.angleDegrees) * 360.0;
     }
 
     public void setDesiredState(SwerveModuleState desiredState, boolean isOpenLoop){
-        desiredState = optimize(desiredState, getState().angle);
-        // if(isOpenLoop){
-        //     double percentOutput = desiredState.speedMetersPerSecond / SwerveConstants.maxSpeed;
-        //     m_DriveMotor.set(percentOutput);
-        // } else {
-        //     double velocity = mpsToFalcon(desiredState.speedMetersPerSecond);
-        //     double voltageFeedforward = m_Feedforward.calculate(velocity) / SwerveConstants.kNominal;
-        //     m_DriveMotor.setVoltage(voltageFeedforward);
-        // }
-        double velocity = mpsToFalcon(desiredState.speedMetersPerSecond);
-        double voltageFeedforward = m_Feedforward.calculate(velocity) / SwerveConstants.kNominal;
-        m_DriveMotor.setVoltage(voltageFeedforward);
+        setDesiredState(desiredState.speedMetersPerSecond, desiredState.angle.getDegrees(), isOpenLoop);
+    }
+
+    public void setDesiredState(double speedMetersPerSecond, double angleDegrees, boolean isOpenLoop){
+        setDesiredState(speedMetersPerSecond, angleDegrees, 0.0, isOpenLoop);
+    }
+
+    /* angularVelocityDegPerSec is the steer rate feedforward, it does not change when optimize() flips the module */
+    public void setDesiredState(double speedMetersPerSecond, double angleDegrees, double angularVelocityDegPerSec, boolean isOpenLoop){
+        optimize(speedMetersPerSecond, angleDegrees, m_MeasuredAngleDegrees, m_Optimized);
+        double speed = m_Optimized[0];
+        double now = Timer.getFPGATimestamp();
+        double dt = now - m_LastSpeedTimestamp;
+        // Along the wheel, so a flip from optimize() is not mistaken for a reversal
+        double acceleration = dt > 0.0 && dt < kMaxAccelerationDt ? Math.signum(speed) * (Math.abs(speed) - Math.abs(m_LastSpeed)) / dt : 0.0;
+        m_LastSpeed = speed;
+        m_LastSpeedTimestamp = now;
+        if(isOpenLoop){
+            m_IO.setDriveVoltage(m_Feedforward.calculate(speed, acceleration));
+        } else {
+            m_IO.setDriveVelocity(speed, acceleration);
+        }
 
         double minSpeed = SwerveConstants.maxSpeed * 4.0 * 0.01;
-        double angle = Math.abs(desiredState.speedMetersPerSecond) <= minSpeed ? m_LastAngle : desiredState.angle.getDegrees();
-        m_AngleMotor.setControl(new PositionVoltage(degreesToFalcon(angle)).withSlot(0));
+        boolean isHolding = Math.abs(m_Optimized[0]) <= minSpeed;
+        double angle = isHolding ? m_LastAngle : m_Optimized[1];
+        m_IO.setAngleDegrees(angle, isHolding ? 0.0 : angularVelocityDegPerSec);
         m_LastAngle = angle;
     }
 
+    /* Gates every output to the IO, see ModuleIO.setOutputsEnabled() */
+    public void setOutputsEnabled(boolean enabled){
+        m_IO.setOutputsEnabled(enabled);
+    }
+
+    /* Forgets the last command, so the next one gets no acceleration feedforward and holds the measured angle */
+    public void resetCommandState(){
+        m_LastSpeed = 0.0;
+        m_LastSpeedTimestamp = 0.0;
+        m_LastAngle = m_MeasuredAngleDegrees;
+    }
+
     public void setDesiredAngle(Rotation2d angle){
-        SwerveModuleState tempState = new SwerveModuleState(0.0, angle);
-        tempState = optimize(tempState, getState().angle);
-        m_AngleMotor.setControl(new PositionVoltage(degreesToFalcon(tempState.angle.getDegrees())).withSlot(0));
+        optimize(0.0, angle.getDegrees(), m_MeasuredAngleDegrees, m_Optimized);
+        m_IO.setAngleDegrees(m_Optimized[1], 0.0);
         m_LastAngle = angle.getDegrees();
     }
 
@@ -94,10 +193,17 @@ public class SwerveModule {
         return m_LastAngle;
     }
 
-    public SwerveModuleState optimize(SwerveModuleState desiredState, Rotation2d currentAngle){
-        double modReferenceAngleDeg = MathUtil.angleModulus(currentAngle.getRadians()) * SwerveConstants.RAD_TO_DEG;
-        double targetSpeed = desiredState.speedMetersPerSecond;
-        double delta = desiredState.angle.getDegrees() - modReferenceAngleDeg;
+    public static SwerveModuleState optimize(SwerveModuleState desiredState, Rotation2d currentAngle){
+        double[] out = new double[2];
+        optimize(desiredState.speedMetersPerSecond, desiredState.angle.getDegrees(), currentAngle.getDegrees(), out);
+        return new SwerveModuleState(out[0], Rotation2d.fromDegrees(out[1]));
+    }
+
+    /* Primitive form of optimize(), writes the target speed into out[0] and the target angle in degrees into out[1] */
+    public static void optimize(double speedMetersPerSecond, double angleDegrees, double currentAngleDegrees, double[] out){
+        double modReferenceAngleDeg = MathUtil.angleModulus(currentAngleDegrees * SwerveConstants.DEG_TO_RAD) * SwerveConstants.RAD_TO_DEG;
+        double targetSpeed = speedMetersPerSecond;
+        double delta = angleDegrees - modReferenceAngleDeg;
         if(delta >= 270.0){
             delta -= 360.0;
         }
@@ -108,81 +214,63 @@ public class SwerveModule {
             targetSpeed *= -1.0;
             delta = delta > 0.0 ? delta - 180.0 : delta + 180.0;
         }
-        double targetAngle = currentAngle.getDegrees() + delta;
-        return new SwerveModuleState(targetSpeed, Rotation2d.fromDegrees(targetAngle));
-    }
-
-    public void resetToAbsolute(){
-        m_AngleMotor.setPosition(degreesToFalcon(getCANCoder().getDegrees() - m_AngleOffset)); 
-    }
-
-    public Rotation2d getCANCoder(){
-        return Rotation2d.fromDegrees(m_CANCoder.getAbsolutePosition().getValueAsDouble() * 360.0);
+        out[0] = targetSpeed;
+        out[1] = currentAngleDegrees + delta;
     }
 
+    /* This loop's snapshot, updated in place by the next updateInputs(), do not modify */
     public SwerveModulePosition getPosition(){
-        double distance = falconToMeters(m_DriveMotor.getPosition().getValueAsDouble());
-        Rotation2d angle = Rotation2d.fromDegrees(falconToDegrees(m_AngleMotor.getPosition().getValueAsDouble()));
-        return new SwerveModulePosition(distance, angle);
+        return m_Position;
     }
 
+    /* This loop's snapshot, updated in place by the next updateInputs(), do not modify */
     public SwerveModuleState getState(){
-        double velocity = falconToMPS(m_DriveMotor.getVelocity().getValueAsDouble());
-        Rotation2d angle = Rotation2d.fromDegrees(falconToDegrees(m_AngleMotor.getPosition().getValueAsDouble()));
-        return new SwerveModuleState(velocity, angle);
+        return m_State;
     }
 
-    public double falconToMeters(double revolutions){
+    public static double falconToMeters(double revolutions){
         // return (counts * SwerveConstants.wheelCircumference) / (2048.0 * SwerveConstants.driveGearRatio);
         return (revolutions * SwerveConstants.wheelCircumference) / SwerveConstants.driveGearRatio;
     }
 
-    public double falconToDegrees(double revolutions){
+    public static double falconToDegrees(double revolutions){
         // return (counts * 360.0) / (2048.0 * SwerveConstants.angleGearRatio);
         return (revolutions * 360.0) / SwerveConstants.angleGearRatio;
     }
 
-    public double degreesToFalcon(double degrees){
+    public static double degreesToFalcon(double degrees){
         // return degrees / (360.0 / (2048.0 * SwerveConstants.angleGearRatio));
         return (degrees / 360.0) * SwerveConstants.angleGearRatio;
     }
 
-    public double falconToRPM(double velocityCounts){
+    public static double falconToRPM(double velocityCounts){
         // double motorRPM = velocityCounts * (600.0 / 2048.0); // Multiplying by 600 converts ms to min
         double motorRPM = velocityCounts * 60.0;
         return motorRPM / SwerveConstants.driveGearRatio;
     }
 
-    public double rpmToFalcon(double rpm){
+    public static double rpmToFalcon(double rpm){
         double motorRPM = rpm * SwerveConstants.driveGearRatio;
         // return motorRPM * (2048.0 / 600.0);
         return motorRPM / 60.0;
         // https://www.chiefdelphi.com/t/shooting-in-rpm-using-talon-fx/380660/2?u=bread
     }
 
-    public double falconToMPS(double velocityCounts){
+    public static double falconToMPS(double velocityCounts){
         double wheelRPM = falconToRPM(velocityCounts);
         return wheelRPM * SwerveConstants.wheelCircumference / 60.0;
     }
 
-    public double mpsToFalcon(double mps){
+    public static double mpsToFalcon(double mps){
         double wheelRPM = (mps * 60.0) / SwerveConstants.wheelCircumference;
         return rpmToFalcon(wheelRPM);
     }
 
-    public double getValFalc(){
-        return degreesToFalcon(getCANCoder().getDegrees());
-    }
-
     public double getValDegWithOffset(){
-        return getCANCoder().getDegrees() - m_AngleOffset;
-    }
-
-    public String getErrorCodeUnits(){
-        return m_AngleMotor.getClosedLoopError().getUnits();
+        return m_Inputs.absoluteAngleDegrees;
     }
 
-    public double getErrorCodeVal(){
-        return m_AngleMotor.getClosedLoopError().getValueAsDouble();
+    public void simulationPeriodic(double dtSeconds){
+        m_IO.simulationPeriodic(dtSeconds);
     }
 }
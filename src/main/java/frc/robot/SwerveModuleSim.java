@@ -0,0 +1,57 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import edu.wpi.first.wpilibj.simulation.LinearSystemSim;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Physics model of one swerve module. The drive side is identified from the drive feedforward gains
+ * (kS, kV, kA per meter per second), the steer side is a Falcon 500 through the real angle gear ratio
+ * turning the module's inertia. Pure WPILib math, no hardware or vendor calls.
+ */
+public class SwerveModuleSim {
+    private LinearSystemSim<N2, N1, N2> m_DriveSim;
+    private DCMotorSim m_SteerSim;
+
+    public SwerveModuleSim(){
+        LinearSystem<N2, N1, N2> drivePlant = LinearSystemId.createDCMotorSystem(SwerveConstants.driveKV, SwerveConstants.driveKA);
+        m_DriveSim = new LinearSystemSim<>(drivePlant);
+        m_SteerSim = new DCMotorSim(DCMotor.getFalcon500(1), SwerveConstants.angleGearRatio, SwerveConstants.steerSimMOI);
+    }
+
+    public void update(double driveVolts, double steerVolts, double dtSeconds){
+        driveVolts = MathUtil.clamp(driveVolts, -SwerveConstants.kNominal, SwerveConstants.kNominal);
+        steerVolts = MathUtil.clamp(steerVolts, -SwerveConstants.kNominal, SwerveConstants.kNominal);
+
+        // kS is static friction, the wheel does not move until the voltage overcomes it
+        double frictionVolts = Math.min(Math.abs(driveVolts), SwerveConstants.driveKS);
+        m_DriveSim.setInput(driveVolts - Math.copySign(frictionVolts, driveVolts));
+        m_DriveSim.update(dtSeconds);
+
+        m_SteerSim.setInputVoltage(steerVolts);
+        m_SteerSim.update(dtSeconds);
+    }
+
+    public double getDrivePositionMeters(){
+        return m_DriveSim.getOutput(0);
+    }
+
+    public double getDriveVelocityMPS(){
+        return m_DriveSim.getOutput(1);
+    }
+
+    /* Steer mechanism rotations, continuous */
+    public double getSteerPositionRotations(){
+        return m_SteerSim.getAngularPositionRotations();
+    }
+
+    public double getSteerVelocityRPS(){
+        return m_SteerSim.getAngularVelocityRPM() / 60.0;
+    }
+}
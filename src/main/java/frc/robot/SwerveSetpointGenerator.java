@@ -0,0 +1,161 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.Constants.SwerveConstants;
+
+/**
+ * Limits robot relative chassis speed targets to what the modules can reach in one loop. The next setpoint
+ * is the previous one moved a fraction {@code s} of the way toward the (desaturated) target, with {@code s}
+ * the largest value in [0, 1], found by bisection, for which every module
+ *
+ * <ul>
+ *   <li>changes its velocity vector by no more than the drive acceleration limit allows, the smaller of the
+ *       current limited torque and what the remaining voltage headroom allows at its speed, and</li>
+ *   <li>turns no faster than {@link SwerveConstants#maxSteerVelocity}, allowing for the drive reversing
+ *       instead of the module turning more than 90 degrees.</li>
+ * </ul>
+ *
+ * Limiting the velocity vector change means a joystick reversal slows the module through zero instead of
+ * flipping it at full speed. The steer limit only applies to modules that are moving, a stopped module can
+ * point anywhere. Not thread-safe, use from whichever thread commands the modules.
+ */
+public class SwerveSetpointGenerator {
+    private static final int kBisectionSteps = 10;
+    private static final double kMovingSpeed = 0.05; // m/s, below this a module's heading is free
+
+    private double[] m_ModuleX;
+    private double[] m_ModuleY;
+    private double m_CurrentLimitedAccel;
+    private double m_FreeSpeed;
+    private double m_StallAccel;
+
+    /* Previous setpoint */
+    private double m_VX;
+    private double m_VY;
+    private double m_Omega;
+    private double[] m_ModuleVX;
+    private double[] m_ModuleVY;
+
+    /* Target after desaturation, reused between calls */
+    private double m_TargetVX;
+    private double m_TargetVY;
+    private double m_TargetOmega;
+
+    public SwerveSetpointGenerator(){
+        Translation2d[] locations = { SwerveConstants.frontLeft,
+                                      SwerveConstants.frontRight,
+                                      SwerveConstants.backLeft,
+                                      SwerveConstants.backRight };
+        m_ModuleX = new double[ModuleSetpoints.kNumModules];
+        m_ModuleY = new double[ModuleSetpoints.kNumModules];
+        for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+            m_ModuleX[i] = locations[i].getX();
+            m_ModuleY[i] = locations[i].getY();
+        }
+        m_ModuleVX = new double[ModuleSetpoints.kNumModules];
+        m_ModuleVY = new double[ModuleSetpoints.kNumModules];
+
+        // Each module pushes a quarter of the robot, with the drive current held at the supply limit
+        double wheelRadius = SwerveConstants.wheelCircumference / (2.0 * Math.PI);
+        double wheelForce = DCMotor.getFalcon500(1).KtNMPerAmp * SwerveConstants.driveContinuousCurrentLimit
+                            * SwerveConstants.driveGearRatio / wheelRadius;
+        m_CurrentLimitedAccel = wheelForce / (SwerveConstants.robotMass / ModuleSetpoints.kNumModules);
+        m_FreeSpeed = SwerveConstants.kNominal / SwerveConstants.driveKV;
+        m_StallAccel = SwerveConstants.kNominal / SwerveConstants.driveKA;
+    }
+
+    /* Starts the next generate() from the given robot relative chassis speeds, e.g. zero when the robot is disabled */
+    public void reset(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond){
+        m_VX = vxMetersPerSecond;
+        m_VY = vyMetersPerSecond;
+        m_Omega = omegaRadiansPerSecond;
+        for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+            m_ModuleVX[i] = m_VX - m_Omega * m_ModuleY[i];
+            m_ModuleVY[i] = m_VY + m_Omega * m_ModuleX[i];
+        }
+    }
+
+    /**
+     * Moves the setpoint toward the robot relative target, read the result with {@link #getVX()},
+     * {@link #getVY()} and {@link #getOmega()}.
+     *
+     * @param maxSpeedMetersPerSecond module speed the target is desaturated to first
+     * @param dtSeconds time until the next call
+     */
+    public void generate(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond,
+                         double maxSpeedMetersPerSecond, double dtSeconds){
+        // Same as desaturating the module states, the kinematics are linear so scale the chassis speeds instead
+        double fastestModule = 0.0;
+        for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+            double vx = vxMetersPerSecond - omegaRadiansPerSecond * m_ModuleY[i];
+            double vy = vyMetersPerSecond + omegaRadiansPerSecond * m_ModuleX[i];
+            fastestModule = Math.max(fastestModule, Math.hypot(vx, vy));
+        }
+        double scale = fastestModule > maxSpeedMetersPerSecond ? maxSpeedMetersPerSecond / fastestModule : 1.0;
+        m_TargetVX = vxMetersPerSecond * scale;
+        m_TargetVY = vyMetersPerSecond * scale;
+        m_TargetOmega = omegaRadiansPerSecond * scale;
+
+        double s = 1.0;
+        if(!isFeasible(1.0, dtSeconds)){
+            double feasible = 0.0;
+            double infeasible = 1.0;
+            for(int step = 0; step < kBisectionSteps; step++){
+                double mid = (feasible + infeasible) / 2.0;
+                if(isFeasible(mid, dtSeconds)){
+                    feasible = mid;
+                } else {
+                    infeasible = mid;
+                }
+            }
+            s = feasible;
+        }
+        reset(m_VX + s * (m_TargetVX - m_VX), m_VY + s * (m_TargetVY - m_VY), m_Omega + s * (m_TargetOmega - m_Omega));
+    }
+
+    public double getVX(){
+        return m_VX;
+    }
+
+    public double getVY(){
+        return m_VY;
+    }
+
+    public double getOmega(){
+        return m_Omega;
+    }
+
+    private boolean isFeasible(double s, double dtSeconds){
+        double vx = m_VX + s * (m_TargetVX - m_VX);
+        double vy = m_VY + s * (m_TargetVY - m_VY);
+        double omega = m_Omega + s * (m_TargetOmega - m_Omega);
+        double maxSteerChange = SwerveConstants.maxSteerVelocity * dtSeconds;
+        for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+            double moduleVX = vx - omega * m_ModuleY[i];
+            double moduleVY = vy + omega * m_ModuleX[i];
+            double speed = Math.hypot(moduleVX, moduleVY);
+            double previousSpeed = Math.hypot(m_ModuleVX[i], m_ModuleVY[i]);
+
+            double maxAccel = m_CurrentLimitedAccel;
+            if(speed > previousSpeed){
+                // Back EMF leaves less voltage to accelerate with the faster the wheel already spins
+                maxAccel = Math.min(maxAccel, Math.max(0.0, m_StallAccel * (1.0 - previousSpeed / m_FreeSpeed)));
+            }
+            if(Math.hypot(moduleVX - m_ModuleVX[i], moduleVY - m_ModuleVY[i]) > maxAccel * dtSeconds){
+                return false;
+            }
+
+            if(speed > kMovingSpeed && previousSpeed > kMovingSpeed){
+                double steerChange = Math.atan2(moduleVY, moduleVX) - Math.atan2(m_ModuleVY[i], m_ModuleVX[i]);
+                // The module can reverse the drive instead of turning past 90 degrees
+                steerChange = MathUtil.angleModulus(2.0 * steerChange) / 2.0;
+                if(Math.abs(steerChange) * SwerveConstants.RAD_TO_DEG > maxSteerChange){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+package frc.robot;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.AutoConstants;
+
+/**
+ * Holonomic trajectory follower: the sample's field relative velocities as feedforward plus PID on x, y
+ * and heading. Outputs are field relative and kept in fields so nothing is allocated per loop. Uses its own
+ * controllers built from the AutoConstants gains so several followers never share integrator state.
+ */
+public class TrajectoryFollower {
+    private PIDController m_XController;
+    private PIDController m_YController;
+    private PIDController m_ThetaController;
+
+    private double m_VX;
+    private double m_VY;
+    private double m_Omega;
+
+    public TrajectoryFollower(){
+        m_XController = new PIDController(AutoConstants.XDriveKP, 0.0, AutoConstants.XDriveKD);
+        m_YController = new PIDController(AutoConstants.YDriveKP, 0.0, AutoConstants.YDriveKD);
+        m_ThetaController = new PIDController(AutoConstants.AngleKP, 0.0, AutoConstants.AngleKD);
+        m_ThetaController.enableContinuousInput(-Math.PI, Math.PI);
+    }
+
+    public void reset(){
+        m_XController.reset();
+        m_YController.reset();
+        m_ThetaController.reset();
+    }
+
+    public void calculate(Pose2d currentPose, TrajectorySample sample){
+        m_VX = sample.vxMetersPerSecond + m_XController.calculate(currentPose.getX(), sample.xMeters);
+        m_VY = sample.vyMetersPerSecond + m_YController.calculate(currentPose.getY(), sample.yMeters);
+        m_Omega = sample.omegaRadiansPerSecond + m_ThetaController.calculate(currentPose.getRotation().getRadians(), sample.headingRadians);
+    }
+
+    public double getVX(){
+        return m_VX;
+    }
+
+    public double getVY(){
+        return m_VY;
+    }
+
+    public double getOmega(){
+        return m_Omega;
+    }
+}
@@ -0,0 +1,23 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/* Mutable trajectory sample, filled in place by the samplers so following a path does not allocate */
+public class TrajectorySample {
+    public double timeSeconds;
+    public double xMeters;
+    public double yMeters;
+    public double headingRadians;
+    public double vxMetersPerSecond;
+    public double vyMetersPerSecond;
+    public double omegaRadiansPerSecond;
+
+    public double getVelocityMPS(){
+        return Math.hypot(vxMetersPerSecond, vyMetersPerSecond);
+    }
+
+    public Pose2d getPose(){
+        return new Pose2d(xMeters, yMeters, new Rotation2d(headingRadians));
+    }
+}
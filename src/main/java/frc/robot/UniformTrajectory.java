@@ -0,0 +1,208 @@
+package frc.robot;
+
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Trajectory resampled at a fixed time step into flat arrays. Sampling is an index computation plus one
+ * linear interpolation into a caller supplied {@link TrajectorySample}, O(1) and allocation free. The last
+ * sample sits at the total time, so the last interval is usually shorter than the time step.
+ */
+public class UniformTrajectory {
+    public static final double kDefaultDt = 0.01;
+
+    private double m_Dt;
+    private double m_TotalTime;
+    private double[] m_X;
+    private double[] m_Y;
+    private double[] m_Heading;
+    private double[] m_VX;
+    private double[] m_VY;
+    private double[] m_Omega;
+
+    private UniformTrajectory(double dt, double totalTime){
+        m_Dt = dt;
+        m_TotalTime = totalTime;
+        int count = (int)Math.ceil(totalTime / dt) + 1;
+        m_X = new double[count];
+        m_Y = new double[count];
+        m_Heading = new double[count];
+        m_VX = new double[count];
+        m_VY = new double[count];
+        m_Omega = new double[count];
+    }
+
+    public static UniformTrajectory fromBinary(BinaryTrajectory trajectory, double dt){
+        UniformTrajectory uniform = new UniformTrajectory(dt, trajectory.getTotalTimeSeconds());
+        TrajectorySample sample = new TrajectorySample();
+        for(int i = 0; i < uniform.size(); i++){
+            trajectory.sample(uniform.timeAt(i), sample);
+            uniform.set(i, sample);
+        }
+        return uniform;
+    }
+
+    /* PathPlanner states only carry speed along the direction of travel, omega is differenced from the holonomic rotation */
+    public static UniformTrajectory fromPathPlanner(PathPlannerTrajectory trajectory, double dt){
+        UniformTrajectory uniform = new UniformTrajectory(dt, trajectory.getTotalTimeSeconds());
+        TrajectorySample sample = new TrajectorySample();
+        for(int i = 0; i < uniform.size(); i++){
+            PathPlannerTrajectory.State state = trajectory.sample(uniform.timeAt(i));
+            sample.xMeters = state.positionMeters.getX();
+            sample.yMeters = state.positionMeters.getY();
+            sample.headingRadians = state.targetHolonomicRotation.getRadians();
+            sample.vxMetersPerSecond = state.velocityMps * state.heading.getCos();
+            sample.vyMetersPerSecond = state.velocityMps * state.heading.getSin();
+            uniform.set(i, sample);
+        }
+        for(int i = 0; i < uniform.size() - 1; i++){
+            double interval = uniform.timeAt(i + 1) - uniform.timeAt(i);
+            uniform.m_Omega[i] = interval > 0.0 ? MathUtil.angleModulus(uniform.m_Heading[i + 1] - uniform.m_Heading[i]) / interval : 0.0;
+        }
+        return uniform;
+    }
+
+    /**
+     * Time parameterizes a polyline, starting and ending at rest. Each segment is a trapezoid profile limited
+     * to maxVelocity and maxAcceleration, and the speed through a corner drops with its turn angle, to zero
+     * for a full reversal. The heading turns at a constant rate from start to end over the whole path, which
+     * is held at its end for longer if the turn would otherwise be faster than maxAngularVelocity.
+     */
+    public static UniformTrajectory fromPolyline(double[] x, double[] y, double startHeading, double endHeading,
+                                                 double maxVelocity, double maxAcceleration, double maxAngularVelocity,
+                                                 double dt){
+        int points = x.length;
+        int segments = Math.max(points - 1, 0);
+        double[] length = new double[segments];
+        for(int i = 0; i < segments; i++){
+            length[i] = Math.hypot(x[i + 1] - x[i], y[i + 1] - y[i]);
+        }
+
+        double[] vertexVelocity = new double[points];
+        for(int i = 1; i < points - 1; i++){
+            double cos = length[i - 1] > 0.0 && length[i] > 0.0
+                         ? ((x[i] - x[i - 1]) * (x[i + 1] - x[i]) + (y[i] - y[i - 1]) * (y[i + 1] - y[i])) / (length[i - 1] * length[i])
+                         : -1.0;
+            vertexVelocity[i] = maxVelocity * (1.0 + cos) / 2.0;
+        }
+        for(int i = 0; i < segments; i++){
+            vertexVelocity[i + 1] = Math.min(vertexVelocity[i + 1], Math.sqrt(vertexVelocity[i] * vertexVelocity[i] + 2.0 * maxAcceleration * length[i]));
+        }
+        for(int i = segments - 1; i >= 0; i--){
+            vertexVelocity[i] = Math.min(vertexVelocity[i], Math.sqrt(vertexVelocity[i + 1] * vertexVelocity[i + 1] + 2.0 * maxAcceleration * length[i]));
+        }
+
+        // Per segment: peak velocity, then the end times of the accelerate, cruise and decelerate phases
+        double[] peak = new double[segments];
+        double[] segmentStart = new double[segments + 1];
+        double[] accelEnd = new double[segments];
+        double[] cruiseEnd = new double[segments];
+        for(int i = 0; i < segments; i++){
+            double v0 = vertexVelocity[i];
+            double v1 = vertexVelocity[i + 1];
+            double vp = Math.min(maxVelocity, Math.sqrt((2.0 * maxAcceleration * length[i] + v0 * v0 + v1 * v1) / 2.0));
+            double accelDistance = (vp * vp - v0 * v0) / (2.0 * maxAcceleration);
+            double decelDistance = (vp * vp - v1 * v1) / (2.0 * maxAcceleration);
+            double cruiseTime = vp > 0.0 ? Math.max(length[i] - accelDistance - decelDistance, 0.0) / vp : 0.0;
+            peak[i] = vp;
+            accelEnd[i] = (vp - v0) / maxAcceleration;
+            cruiseEnd[i] = accelEnd[i] + cruiseTime;
+            segmentStart[i + 1] = segmentStart[i] + cruiseEnd[i] + (vp - v1) / maxAcceleration;
+        }
+
+        double turn = MathUtil.angleModulus(endHeading - startHeading);
+        UniformTrajectory uniform = new UniformTrajectory(dt, Math.max(segmentStart[segments], Math.abs(turn) / maxAngularVelocity));
+        double omega = uniform.m_TotalTime > 0.0 ? turn / uniform.m_TotalTime : 0.0;
+        TrajectorySample sample = new TrajectorySample();
+        int segment = 0;
+        for(int i = 0; i < uniform.size(); i++){
+            double time = uniform.timeAt(i);
+            while(segment < segments - 1 && time > segmentStart[segment + 1]){
+                segment++;
+            }
+            if(segments == 0){
+                sample.xMeters = x[0];
+                sample.yMeters = y[0];
+                sample.vxMetersPerSecond = 0.0;
+                sample.vyMetersPerSecond = 0.0;
+            } else {
+                double t = time - segmentStart[segment];
+                double v0 = vertexVelocity[segment];
+                double vp = peak[segment];
+                double distance;
+                double velocity;
+                if(t < accelEnd[segment]){
+                    velocity = v0 + maxAcceleration * t;
+                    distance = (v0 + velocity) / 2.0 * t;
+                } else if(t < cruiseEnd[segment]){
+                    velocity = vp;
+                    distance = (v0 + vp) / 2.0 * accelEnd[segment] + vp * (t - accelEnd[segment]);
+                } else {
+                    double decelTime = t - cruiseEnd[segment];
+                    velocity = Math.max(vp - maxAcceleration * decelTime, 0.0);
+                    distance = (v0 + vp) / 2.0 * accelEnd[segment] + vp * (cruiseEnd[segment] - accelEnd[segment])
+                               + (vp + velocity) / 2.0 * decelTime;
+                }
+                double ux = length[segment] > 0.0 ? (x[segment + 1] - x[segment]) / length[segment] : 0.0;
+                double uy = length[segment] > 0.0 ? (y[segment + 1] - y[segment]) / length[segment] : 0.0;
+                distance = Math.min(distance, length[segment]);
+                sample.xMeters = x[segment] + ux * distance;
+                sample.yMeters = y[segment] + uy * distance;
+                sample.vxMetersPerSecond = ux * velocity;
+                sample.vyMetersPerSecond = uy * velocity;
+            }
+            sample.headingRadians = startHeading + omega * time;
+            sample.omegaRadiansPerSecond = i < uniform.size() - 1 ? omega : 0.0;
+            uniform.set(i, sample);
+        }
+        return uniform;
+    }
+
+    private void set(int index, TrajectorySample sample){
+        m_X[index] = sample.xMeters;
+        m_Y[index] = sample.yMeters;
+        m_Heading[index] = sample.headingRadians;
+        m_VX[index] = sample.vxMetersPerSecond;
+        m_VY[index] = sample.vyMetersPerSecond;
+        m_Omega[index] = sample.omegaRadiansPerSecond;
+    }
+
+    /* Time of the sample at index, every step is dt apart except the last one which is clamped to the total time */
+    private double timeAt(int index){
+        return Math.min(index * m_Dt, m_TotalTime);
+    }
+
+    public int size(){
+        return m_X.length;
+    }
+
+    public double getTotalTimeSeconds(){
+        return m_TotalTime;
+    }
+
+    public Pose2d getInitialPose(){
+        return new Pose2d(m_X[0], m_Y[0], new Rotation2d(m_Heading[0]));
+    }
+
+    public void sample(double timeSeconds, TrajectorySample out){
+        double clamped = MathUtil.clamp(timeSeconds, 0.0, m_TotalTime);
+        double position = clamped / m_Dt;
+        int last = m_X.length - 1;
+        int index = Math.min((int)position, Math.max(last - 1, 0));
+        int next = Math.min(index + 1, last);
+        double start = timeAt(index);
+        double interval = timeAt(next) - start;
+        double t = interval > 0.0 ? MathUtil.clamp((clamped - start) / interval, 0.0, 1.0) : 0.0;
+
+        out.timeSeconds = clamped;
+        out.xMeters = MathUtil.interpolate(m_X[index], m_X[next], t);
+        out.yMeters = MathUtil.interpolate(m_Y[index], m_Y[next], t);
+        out.headingRadians = m_Heading[index] + MathUtil.angleModulus(m_Heading[next] - m_Heading[index]) * t;
+        out.vxMetersPerSecond = MathUtil.interpolate(m_VX[index], m_VX[next], t);
+        out.vyMetersPerSecond = MathUtil.interpolate(m_VY[index], m_VY[next], t);
+        out.omegaRadiansPerSecond = MathUtil.interpolate(m_Omega[index], m_Omega[next], t);
+    }
+}
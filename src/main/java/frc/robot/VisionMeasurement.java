@@ -0,0 +1,20 @@
+package frc.robot;
+
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N3;
+
+/* One camera's pose estimate with the trust computed for it, handed from the vision thread to the drivetrain */
+public class VisionMeasurement {
+    public final Pose2d pose;
+    public final double timestampSeconds;
+    public final Vector<N3> stdDevs;
+    public final int tagCount;
+
+    public VisionMeasurement(Pose2d pose, double timestampSeconds, Vector<N3> stdDevs, int tagCount){
+        this.pose = pose;
+        this.timestampSeconds = timestampSeconds;
+        this.stdDevs = stdDevs;
+        this.tagCount = tagCount;
+    }
+}
@@ -0,0 +1,134 @@
+package frc.robot;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.Constants.SwerveConstants.Throttle;
+import frc.robot.subsystems.subsystem_DriveTrain;
+
+/**
+ * Runs the drive math with synthetic inputs while disabled so the JIT has compiled it before the first
+ * enabled loop. Driving goes through the real drivetrain and module IOs, so the call sites are profiled
+ * with the classes the robot actually runs, with the IO outputs gated off (see
+ * {@link subsystem_DriveTrain#warmUp}). The pose estimator, trajectory and follower are private instances,
+ * so nothing here can move the robot or disturb the real odometry. Each call spends at most
+ * {@link #kBudgetSeconds}, and warm-up is considered done once enough iterations ran and the JIT stopped
+ * compiling for {@link #kStableLoops} calls. Progress is published to "WarmUp/".
+ */
+public class WarmUp {
+    private static final int kRunStage = LoopProfiler.register("WarmUp.run");
+    private static final double kBudgetSeconds = 0.004;
+    private static final long kMinIterations = 20000;
+    private static final int kStableLoops = 50;
+
+    private subsystem_DriveTrain m_DriveTrain;
+    private SwerveDrivePoseEstimator m_Estimator;
+    private SwerveModulePosition[] m_Positions;
+    private UniformTrajectory m_Trajectory;
+    private TrajectorySample m_Sample;
+    private TrajectoryFollower m_Follower;
+
+    private CompilationMXBean m_Compiler;
+    private long m_Iterations;
+    private long m_LastCompileMillis;
+    private int m_StableLoops;
+    private boolean m_Done;
+
+    private IntegerPublisher m_IterationsPublisher;
+    private DoublePublisher m_CompileTimePublisher;
+    private BooleanPublisher m_DonePublisher;
+
+    public WarmUp(subsystem_DriveTrain driveTrain){
+        m_DriveTrain = driveTrain;
+        m_Positions = new SwerveModulePosition[ModuleSetpoints.kNumModules];
+        for(int i = 0; i < m_Positions.length; i++){
+            m_Positions[i] = new SwerveModulePosition();
+        }
+        m_Estimator = new SwerveDrivePoseEstimator(SwerveConstants.kinematics, new Rotation2d(), m_Positions, new Pose2d(),
+                                                   SwerveConstants.stateStdDevs, SwerveConstants.visionStdDevs);
+        m_Trajectory = UniformTrajectory.fromPolyline(new double[]{ 1.0, 4.0, 6.0 }, new double[]{ 1.0, 1.0, 3.0 }, 0.0, Math.PI / 2.0,
+                                                      AutoConstants.MaxSpeedMetersPerSecond,
+                                                      AutoConstants.MaxAccelMetersPerSecondSquared,
+                                                      AutoConstants.MaxAngularSpeedMetersPerSecond,
+                                                      UniformTrajectory.kDefaultDt);
+        m_Sample = new TrajectorySample();
+        m_Follower = new TrajectoryFollower();
+        m_Compiler = ManagementFactory.getCompilationMXBean();
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("WarmUp");
+        m_IterationsPublisher = table.getIntegerTopic("Iterations").publish();
+        m_CompileTimePublisher = table.getDoubleTopic("CompileTimeMs").publish();
+        m_DonePublisher = table.getBooleanTopic("Done").publish();
+    }
+
+    /* Call from disabledPeriodic, returns right away once warm-up is done */
+    public void run(){
+        if(m_Done){
+            return;
+        }
+        LoopProfiler.start(kRunStage);
+        double deadline = Timer.getFPGATimestamp() + kBudgetSeconds;
+        try{
+            do{
+                iterate();
+                m_Iterations++;
+            } while(Timer.getFPGATimestamp() < deadline);
+        } finally {
+            m_DriveTrain.endWarmUp();
+        }
+
+        // Without compilation time monitoring, fall back to the iteration count alone
+        long compileMillis = m_Compiler != null && m_Compiler.isCompilationTimeMonitoringSupported() ? m_Compiler.getTotalCompilationTime() : 0;
+        m_StableLoops = compileMillis == m_LastCompileMillis ? m_StableLoops + 1 : 0;
+        m_LastCompileMillis = compileMillis;
+        m_Done = m_Iterations >= kMinIterations && m_StableLoops >= kStableLoops;
+
+        m_IterationsPublisher.set(m_Iterations);
+        m_CompileTimePublisher.set(compileMillis);
+        m_DonePublisher.set(m_Done);
+        LoopProfiler.stop(kRunStage);
+    }
+
+    public boolean isDone(){
+        return m_Done;
+    }
+
+    private void iterate(){
+        // Vary the inputs so no branch looks dead to the profiler
+        double phase = (m_Iterations % 360) * SwerveConstants.DEG_TO_RAD;
+        double vx = 2.0 * Math.cos(phase);
+        double vy = 2.0 * Math.sin(phase);
+        double omega = 3.0 * Math.sin(2.0 * phase);
+
+        subsystem_DriveTrain.applyThrottle(Throttle.NONLINEAR, Math.sin(phase));
+        // Alternate open and closed loop so both drive requests are compiled
+        m_DriveTrain.warmUp(vx, vy, omega, (m_Iterations & 1) == 0);
+        for(int i = 0; i < m_Positions.length; i++){
+            m_Positions[i].distanceMeters += Math.hypot(vx, vy) * TimedRobot.kDefaultPeriod;
+            m_Positions[i].angle = new Rotation2d(phase);
+        }
+
+        double time = m_Iterations * TimedRobot.kDefaultPeriod;
+        m_Estimator.updateWithTime(time, new Rotation2d(phase), m_Positions);
+        if(m_Iterations % 10 == 0){
+            m_Estimator.addVisionMeasurement(m_Estimator.getEstimatedPosition(), time - 0.05, VecBuilder.fill(0.3, 0.3, 0.9));
+        }
+
+        m_Trajectory.sample(time % m_Trajectory.getTotalTimeSeconds(), m_Sample);
+        m_Follower.calculate(m_Estimator.getEstimatedPosition(), m_Sample);
+    }
+}
@@ -13,44 +13,57 @@ import com.pathplanner.lib.path.PathPlannerTrajectory;
 
 // import com.choreo.lib.*;
 
-import edu.wpi.first.math.controller.HolonomicDriveController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 // import frc.robot.SwerveModule;
-import frc.robot.Constants.AutoConstants;
-import frc.robot.Constants.SwerveConstants;
+import frc.robot.LoopProfiler;
+import frc.robot.TrajectoryFollower;
+import frc.robot.TrajectorySample;
+import frc.robot.UniformTrajectory;
 import frc.robot.subsystems.subsystem_DriveTrain;
 
 public class command_DriveAuton extends Command {
   /** Creates a new command_DriveAuton. */
+  private static final int kExecuteStage = LoopProfiler.register("command_DriveAuton.execute");
+
   private subsystem_DriveTrain m_DriveTrain;
   private BooleanSupplier m_ToReset;
   private Timer m_Timer;
 
-  private PathPlannerTrajectory m_Trajectory;
-  private PathPlannerPath m_Path;
   // private ChoreoTrajectory m_ChoreoTrajectory;
   // private ChoreoTrajectoryState m_ChoreoTrajectoryState;
   // private Choreo m_Choreo;
-  private HolonomicDriveController m_DriveController;
+
+  /* PathPlanner trajectories are resampled into one of these, so following never allocates */
+  private UniformTrajectory m_UniformTrajectory;
+  private TrajectorySample m_Sample;
+  private TrajectoryFollower m_Follower;
 
   public command_DriveAuton(subsystem_DriveTrain driveTrain,
                             BooleanSupplier toReset,
                             String trajFilePath) {
-    // Use addRequirements() here to declare subsystem dependencies.
-    m_DriveTrain = driveTrain;
-    m_ToReset = toReset;
-    
     // m_Path = PathPlannerPath.fromPathFile(trajFilePath);
-    m_Path = PathPlannerPath.fromChoreoTrajectory(trajFilePath);
-    m_Trajectory = new PathPlannerTrajectory(m_Path, new ChassisSpeeds(0, 0, 0), Rotation2d.fromDegrees(0.0));
     // m_ChoreoTrajectory = Choreo.getTrajectory(trajFilePath);
     // m_ChoreoTrajectoryState = new ChoreoTrajectoryState(0, 0, 0, 0, 0, 0, 0)
+    this(driveTrain,
+         toReset,
+         UniformTrajectory.fromPathPlanner(new PathPlannerTrajectory(PathPlannerPath.fromChoreoTrajectory(trajFilePath),
+                                                                     new ChassisSpeeds(0, 0, 0),
+                                                                     Rotation2d.fromDegrees(0.0)),
+                                           UniformTrajectory.kDefaultDt));
+  }
+
+  public command_DriveAuton(subsystem_DriveTrain driveTrain,
+                            BooleanSupplier toReset,
+                            UniformTrajectory trajectory) {
+    m_DriveTrain = driveTrain;
+    m_ToReset = toReset;
+    m_UniformTrajectory = trajectory;
+    m_Sample = new TrajectorySample();
+    m_Follower = new TrajectoryFollower();
     addRequirements(m_DriveTrain);
     m_Timer = new Timer();
   }
@@ -64,7 +77,8 @@ public class command_DriveAuton extends Command {
 
     // Pose2d initialOdo = m_ChoreoTrajectory.getInitialPose();
 
-    Pose2d initOdometry = m_Trajectory.getInitialTargetHolonomicPose();
+    Pose2d initOdometry = m_UniformTrajectory.getInitialPose();
+    m_Follower.reset();
 
     if(m_ToReset.getAsBoolean()){
       m_DriveTrain.resetOdometry(initOdometry);
@@ -78,6 +92,11 @@ public class command_DriveAuton extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
+    LoopProfiler.start(kExecuteStage);
+    m_UniformTrajectory.sample(m_Timer.get(), m_Sample);
+    m_Follower.calculate(m_DriveTrain.getPose(), m_Sample);
+    m_DriveTrain.driveFieldRelative(m_Follower.getVX(), m_Follower.getVY(), m_Follower.getOmega());
+
     //Test Case 1
     // ChoreoTrajectoryState statey = m_ChoreoTrajectory.sample(m_Timer.get(), false);
     // ChassisSpeeds chassisSpeeds1 = m_DriveController.calculate(m_DriveTrain.getPose(), 
@@ -89,17 +108,7 @@ public class command_DriveAuton extends Command {
     // ChoreoTrajectoryState stateys = m_ChoreoTrajectory.sample(m_Timer.get(), false);
     // ChassisSpeeds chassisSpeeds2 = stateys.getChassisSpeeds();
 
-    //Default Case
-    PathPlannerTrajectory.State state = m_Trajectory.sample(m_Timer.get());
-    ChassisSpeeds chassisSpeeds3 = m_DriveController.calculate(m_DriveTrain.getPose(),
-                                              state.getTargetHolonomicPose(),
-                                              state.velocityMps,
-                                              state.targetHolonomicRotation);
-    
-    SwerveModuleState[] moduleStates = SwerveConstants.kinematics.toSwerveModuleStates(chassisSpeeds3);
-    
-    SwerveDriveKinematics.desaturateWheelSpeeds(moduleStates, AutoConstants.MaxSpeedMetersPerSecond);
-    m_DriveTrain.setModuleStates(moduleStates);
+    LoopProfiler.stop(kExecuteStage);
   }
 
   // Called once the command ends or is interrupted.
@@ -111,6 +120,6 @@ public class command_DriveAuton extends Command {
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    return m_Timer.get() >= m_Trajectory.getTotalTimeSeconds();
+    return m_Timer.get() >= m_UniformTrajectory.getTotalTimeSeconds();
   }
 }
@@ -8,18 +8,23 @@ package frc.robot.commands;
 import edu.wpi.first.wpilibj2.command.Command;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import frc.robot.LoopProfiler;
 import frc.robot.Constants.ControllerConstants;
 import frc.robot.Constants.SwerveConstants;
 import frc.robot.subsystems.subsystem_DriveTrain;
 
 public class command_DriveTeleop extends Command {
   /** Creates a new command_DriveTeleop. */
+  private static final int kExecuteStage = LoopProfiler.register("command_DriveTeleop.execute");
+
   private subsystem_DriveTrain m_DriveTrain;
   private DoubleSupplier m_xSpeed;
   private DoubleSupplier m_ySpeed;
   private DoubleSupplier m_zRot;
   private BooleanSupplier m_IsOrientFront;
   private BooleanSupplier m_IsOrientBack;
+  private IntSupplier m_OrientPOV;
   private BooleanSupplier m_FieldRelative;
   private BooleanSupplier m_OpenLoop;
 
@@ -29,6 +34,7 @@ public class command_DriveTeleop extends Command {
                             DoubleSupplier zRot,
                             BooleanSupplier isOrientFront,
                             BooleanSupplier isOrientBack,
+                            IntSupplier orientPOV,
                             BooleanSupplier fieldRelative,
                             BooleanSupplier openLoop) {
     // Use addRequirements() here to declare subsystem dependencies.
@@ -38,6 +44,7 @@ public class command_DriveTeleop extends Command {
     m_zRot = zRot;
     m_IsOrientFront = isOrientFront;
     m_IsOrientBack = isOrientBack;
+    m_OrientPOV = orientPOV;
     m_FieldRelative = fieldRelative;
     m_OpenLoop = openLoop;
     addRequirements(m_DriveTrain);
@@ -50,7 +57,8 @@ public class command_DriveTeleop extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    m_DriveTrain.setAutoOrient(m_IsOrientFront.getAsBoolean(), m_IsOrientBack.getAsBoolean(), m_zRot.getAsDouble());
+    LoopProfiler.start(kExecuteStage);
+    m_DriveTrain.setAutoOrient(m_IsOrientFront.getAsBoolean(), m_IsOrientBack.getAsBoolean(), m_OrientPOV.getAsInt(), m_zRot.getAsDouble());
     
     double transformedXSpeed = 0.0;
     double transformedYSpeed = 0.0;
@@ -73,6 +81,7 @@ public class command_DriveTeleop extends Command {
                             transformedZRot * SwerveConstants.maxAngularVelocity,
                             m_FieldRelative.getAsBoolean(),
                             m_OpenLoop.getAsBoolean());
+    LoopProfiler.stop(kExecuteStage);
   }
 
   // Called once the command ends or is interrupted.
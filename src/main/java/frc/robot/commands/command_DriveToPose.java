@@ -0,0 +1,93 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.LoopProfiler;
+import frc.robot.Pathfinder;
+import frc.robot.TrajectoryFollower;
+import frc.robot.TrajectorySample;
+import frc.robot.UniformTrajectory;
+import frc.robot.subsystems.subsystem_DriveTrain;
+
+public class command_DriveToPose extends Command {
+  /** Creates a new command_DriveToPose. */
+  private static final int kExecuteStage = LoopProfiler.register("command_DriveToPose.execute");
+
+  private subsystem_DriveTrain m_DriveTrain;
+  private Pathfinder m_Pathfinder;
+  private Supplier<Pose2d> m_Goal;
+  private Timer m_Timer;
+
+  private CompletableFuture<UniformTrajectory> m_Plan;
+  private UniformTrajectory m_Trajectory;
+  private TrajectorySample m_Sample;
+  private TrajectoryFollower m_Follower;
+  private boolean m_Failed;
+
+  /* Plans from wherever the robot is when scheduled to the goal, and holds still until the plan arrives */
+  public command_DriveToPose(subsystem_DriveTrain driveTrain, Pathfinder pathfinder, Supplier<Pose2d> goal) {
+    m_DriveTrain = driveTrain;
+    m_Pathfinder = pathfinder;
+    m_Goal = goal;
+    m_Timer = new Timer();
+    m_Sample = new TrajectorySample();
+    m_Follower = new TrajectoryFollower();
+    addRequirements(m_DriveTrain);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    m_Trajectory = null;
+    m_Failed = false;
+    m_Follower.reset();
+    m_Plan = m_Pathfinder.findPath(m_DriveTrain.getPose(), m_Goal.get());
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    LoopProfiler.start(kExecuteStage);
+    if(m_Trajectory == null){
+      if(!m_Plan.isDone()){
+        m_DriveTrain.driveFieldRelative(0.0, 0.0, 0.0);
+        LoopProfiler.stop(kExecuteStage);
+        return;
+      }
+      try{
+        m_Trajectory = m_Plan.join();
+      } catch(RuntimeException e){
+        DriverStation.reportWarning("Drive to pose: " + e.getMessage(), false);
+        m_Failed = true;
+        LoopProfiler.stop(kExecuteStage);
+        return;
+      }
+      m_Timer.restart();
+    }
+    m_Trajectory.sample(m_Timer.get(), m_Sample);
+    m_Follower.calculate(m_DriveTrain.getPose(), m_Sample);
+    m_DriveTrain.driveFieldRelative(m_Follower.getVX(), m_Follower.getVY(), m_Follower.getOmega());
+    LoopProfiler.stop(kExecuteStage);
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    m_DriveTrain.swerveDrive(0, 0, 0, false, false);
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return m_Failed || (m_Trajectory != null && m_Timer.get() >= m_Trajectory.getTotalTimeSeconds());
+  }
+}
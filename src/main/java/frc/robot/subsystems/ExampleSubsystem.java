@@ -5,9 +5,8 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
-public class ExampleSubsystem extends SubsystemBase {
+public class ExampleSubsystem extends ProfiledSubsystem {
   /** Creates a new ExampleSubsystem. */
   public ExampleSubsystem() {}
 
@@ -36,7 +35,7 @@ public class ExampleSubsystem extends SubsystemBase {
   }
 
   @Override
-  public void periodic() {
+  protected void profiledPeriodic() {
     // This method will be called once per scheduler run
   }
 
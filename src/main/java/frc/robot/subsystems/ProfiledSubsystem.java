@@ -0,0 +1,31 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.LoopProfiler;
+
+/**
+ * Subsystem whose periodic() is timed by the {@link LoopProfiler} as "ClassName.periodic", so every
+ * subsystem shows up in the loop timing and overrun reports without registering a stage by hand.
+ * Subclasses put their periodic work in {@link #profiledPeriodic()}.
+ */
+public abstract class ProfiledSubsystem extends SubsystemBase {
+  private final int m_PeriodicStage;
+
+  protected ProfiledSubsystem() {
+    m_PeriodicStage = LoopProfiler.register(getClass().getSimpleName() + ".periodic");
+  }
+
+  @Override
+  public final void periodic() {
+    LoopProfiler.start(m_PeriodicStage);
+    profiledPeriodic();
+    LoopProfiler.stop(m_PeriodicStage);
+  }
+
+  /* Called once per scheduler run, in place of periodic() */
+  protected void profiledPeriodic() {}
+}
@@ -4,13 +4,15 @@
 
 package frc.robot.subsystems;
 
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
-import com.ctre.phoenix6.hardware.Pigeon2;
-import com.ctre.phoenix6.configs.Pigeon2Configuration;
-import edu.wpi.first.math.VecBuilder;
+import com.ctre.phoenix6.BaseStatusSignal;
 import edu.wpi.first.math.Vector;
-import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -19,12 +21,28 @@ import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+// import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 // import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
+import frc.robot.DeviceConfigurator;
+import frc.robot.DriveRecorder;
+import frc.robot.DriveTelemetry;
+import frc.robot.GyroIO;
+import frc.robot.GyroIOPigeon2;
+import frc.robot.GyroIO.GyroIOInputs;
+import frc.robot.ModuleIO;
+import frc.robot.ModuleIOPhoenix;
+import frc.robot.LoopProfiler;
+import frc.robot.ModuleSetpoints;
+import frc.robot.OdometryThread;
 import frc.robot.SwerveModule;
+import frc.robot.SwerveSetpointGenerator;
 import frc.robot.Constants.DPAD;
 import frc.robot.Constants.FrontLeftModule;
 import frc.robot.Constants.FrontRightModule;
@@ -36,9 +54,13 @@ import frc.robot.Constants.SwerveConstants;
 import frc.robot.Constants.DPAD.ORIENTATION;
 import frc.robot.Constants.SwerveConstants.Throttle;
 
-public class subsystem_DriveTrain extends SubsystemBase {
+public class subsystem_DriveTrain extends ProfiledSubsystem implements AutoCloseable {
   /** Creates a new subsystem_DriveTrain. */
-  private Pigeon2 m_Gyro;
+  private static final int kTelemetryStage = LoopProfiler.register("DriveTelemetry.flush");
+
+  private GyroIO m_GyroIO;
+  private GyroIOInputs m_GyroInputs;
+  private BaseStatusSignal[] m_InputSignals;
   private SwerveModule m_FrontLeft;
   private SwerveModule m_FrontRight;
   private SwerveModule m_BackLeft;
@@ -47,31 +69,83 @@ public class subsystem_DriveTrain extends SubsystemBase {
   private SwerveDriveKinematics m_Kinematics;
   private SwerveModulePosition[] m_ModulePositions;
   private SwerveDrivePoseEstimator m_PoseEstimator;
+  private ReentrantLock m_OdometryLock;
+  private OdometryThread m_OdometryThread;
+  private ModuleSetpoints m_Setpoints;
+  private ModuleSetpoints m_PublishedSetpoints;
+  private SwerveSetpointGenerator m_SetpointGenerator;
+  private SwerveSetpointGenerator m_WarmUpGenerator; // the drive loop thread owns m_SetpointGenerator
+  private DriveTelemetry m_Telemetry;
+  private DriveRecorder m_Recorder;
+  private double[] m_CommandRecord;
+  private double[] m_PoseRecord;
+  private double[] m_VisionRecord;
   
   private SwerveConstants.Throttle m_Throttle;
 
-  private PIDController m_AutoOrientPID;
+  private ProfiledPIDController m_HeadingController;
   
-  private boolean m_IsAutoOrient;
+  private volatile boolean m_IsAutoOrient;
   private boolean m_IsPark;
   
-  private int m_DPAD;
+  private volatile int m_DPAD;
+  private volatile boolean m_HeadingReset; // restart the profile from the current heading on the next calculate
   private int m_OrientCounter;
 
-  private Vector<N3> vec1 = VecBuilder.fill(0.7, 0.7, 0.1);
-  private Vector<N3> vec2 = VecBuilder.fill(0.3, 0.3, 0.9);
   
+  /* Latest target handed from the commands to the fast drive loop, field relative */
+  private static final class DriveTarget {
+    final ChassisSpeeds speeds;
+    final boolean isAutoOrient;
+    final double maxSpeed;
+    final boolean isOpenLoop;
+    final double timestamp;
+
+    DriveTarget(ChassisSpeeds speeds, boolean isAutoOrient, double maxSpeed, boolean isOpenLoop){
+      this.speeds = speeds;
+      this.isAutoOrient = isAutoOrient;
+      this.maxSpeed = maxSpeed;
+      this.isOpenLoop = isOpenLoop;
+      this.timestamp = Timer.getFPGATimestamp();
+    }
+  }
+
+  private AtomicReference<DriveTarget> m_Target;
+  private Notifier m_DriveNotifier;
+  private boolean m_DriveLoopStarted;
+  private boolean m_IsWarmingUp;
+
   public subsystem_DriveTrain() {
-    m_Gyro = new Pigeon2(SwerveConstants.canCoderID, "DriveCANivore");
-    m_FrontLeft = new SwerveModule(FrontLeftModule.constants);
-    m_FrontRight = new SwerveModule(FrontRightModule.constants);
-    m_BackLeft = new SwerveModule(BackLeftModule.constants);
-    m_BackRight = new SwerveModule(BackRightModule.constants);
+    this(new ModuleIO[]{ new ModuleIOPhoenix(FrontLeftModule.constants),
+                         new ModuleIOPhoenix(FrontRightModule.constants),
+                         new ModuleIOPhoenix(BackLeftModule.constants),
+                         new ModuleIOPhoenix(BackRightModule.constants) },
+         new GyroIOPigeon2(SwerveConstants.canCoderID));
+  }
+
+  /* Module IOs in front left, front right, back left, back right order */
+  public subsystem_DriveTrain(ModuleIO[] moduleIOs, GyroIO gyroIO) {
+    m_GyroIO = gyroIO;
+    m_GyroInputs = new GyroIOInputs();
+    m_FrontLeft = new SwerveModule(moduleIOs[0]);
+    m_FrontRight = new SwerveModule(moduleIOs[1]);
+    m_BackLeft = new SwerveModule(moduleIOs[2]);
+    m_BackRight = new SwerveModule(moduleIOs[3]);
     m_Kinematics = new SwerveDriveKinematics(SwerveConstants.frontLeft, 
                                             SwerveConstants.frontRight,
                                             SwerveConstants.backLeft,
                                             SwerveConstants.backRight);
 
+    configureDevices();
+
+    // Every signal the loop reads, refreshed together once per loop
+    List<BaseStatusSignal> inputSignals = new ArrayList<>();
+    for(SwerveModule module : new SwerveModule[]{ m_FrontLeft, m_FrontRight, m_BackLeft, m_BackRight }){
+      inputSignals.addAll(Arrays.asList(module.getInputSignals()));
+    }
+    inputSignals.addAll(Arrays.asList(m_GyroIO.getInputSignals()));
+    m_InputSignals = inputSignals.toArray(new BaseStatusSignal[0]);
+
     m_ModulePositions = new SwerveModulePosition[4];
     updateModulePositions();
     
@@ -80,25 +154,91 @@ public class subsystem_DriveTrain extends SubsystemBase {
                                                   m_ModulePositions,
                                                   new Pose2d(0.0, 0.0, 
                                                   new Rotation2d()
-                                                  ), vec1, vec2);
-
+                                                  ),
+                                                  SwerveConstants.stateStdDevs,
+                                                  SwerveConstants.visionStdDevs);
+
+    m_Setpoints = new ModuleSetpoints();
+    m_PublishedSetpoints = new ModuleSetpoints();
+    m_SetpointGenerator = new SwerveSetpointGenerator();
+    m_WarmUpGenerator = new SwerveSetpointGenerator();
+    m_Target = new AtomicReference<>();
+    m_Telemetry = new DriveTelemetry();
+    m_Recorder = new DriveRecorder();
+    m_CommandRecord = new double[DriveRecorder.kCommandSize];
+    m_PoseRecord = new double[DriveRecorder.kPoseSize];
+    m_VisionRecord = new double[DriveRecorder.kVisionSize];
     m_Throttle = Throttle.LINEAR;
 
     m_IsAutoOrient = false;
     m_IsPark = false;
     m_OrientCounter = 0;
     m_DPAD = DPAD.value(ORIENTATION.NON_ORIENTED);
-    m_AutoOrientPID = new PIDController(0.05, 0.0, 0.001);
-    // m_Constraints = new TrapezoidProfile.Constraints(AutoConstants.MaxAngularSpeedMetersPerSecond, 
-    //                                                 AutoConstants.MaxAngularAccelMetersPerSecondSquared);
+    m_HeadingController = new ProfiledPIDController(SwerveConstants.headingKP, 0.0, SwerveConstants.headingKD,
+                                                    new TrapezoidProfile.Constraints(SwerveConstants.headingMaxVelocity,
+                                                                                     SwerveConstants.headingMaxAcceleration),
+                                                    SwerveConstants.useFastDriveLoop ? SwerveConstants.driveLoopPeriod : TimedRobot.kDefaultPeriod);
     
-    Timer.delay(1.0);
-    resetModulesToAbsolute();
-    m_Gyro.getConfigurator().apply(new Pigeon2Configuration());
     zeroGyro();
 
-    m_AutoOrientPID.enableContinuousInput(-180.0, 180.0);
-    m_AutoOrientPID.setTolerance(1.0);
+    m_HeadingController.enableContinuousInput(-Math.PI, Math.PI);
+    m_HeadingController.setTolerance(SwerveConstants.headingTolerance);
+
+    m_OdometryLock = new ReentrantLock();
+    m_OdometryThread = new OdometryThread(new SwerveModule[]{ m_FrontLeft, m_FrontRight, m_BackLeft, m_BackRight },
+                                          m_GyroIO,
+                                          m_PoseEstimator,
+                                          m_OdometryLock,
+                                          m_Recorder);
+    m_Recorder.start();
+    m_OdometryThread.start();
+
+    if(SwerveConstants.useFastDriveLoop){
+      m_DriveNotifier = new Notifier(this::driveLoop);
+      m_DriveNotifier.setName("DriveLoop");
+      // The HAL thread wakes the notifiers, it has to be real-time too or the period jitters
+      Notifier.setHALThreadPriority(true, SwerveConstants.driveLoopPriority + 1);
+      m_DriveNotifier.startPeriodic(SwerveConstants.driveLoopPeriod);
+    }
+  }
+
+  /* Stops the drive loop, the odometry thread and the recorder, so a test can build a fresh drivetrain */
+  @Override
+  public void close(){
+    if(m_DriveNotifier != null){
+      m_DriveNotifier.close();
+    }
+    m_OdometryThread.close();
+    m_Recorder.close();
+  }
+
+  /* Configures all 13 devices concurrently, waits for them to report, then zeroes the drive encoders */
+  private void configureDevices(){
+    DeviceConfigurator configurator = new DeviceConfigurator();
+    m_FrontLeft.addConfigurations(configurator, "Front left");
+    m_FrontRight.addConfigurations(configurator, "Front right");
+    m_BackLeft.addConfigurations(configurator, "Back left");
+    m_BackRight.addConfigurations(configurator, "Back right");
+    m_GyroIO.addConfigurations(configurator, "Pigeon");
+    configurator.awaitAll(SwerveConstants.configTimeout);
+
+    // A fresh frame from every CANcoder, motor and the gyro means the absolute angles are valid to start from
+    List<BaseStatusSignal> readySignals = new ArrayList<>();
+    for(SwerveModule module : new SwerveModule[]{ m_FrontLeft, m_FrontRight, m_BackLeft, m_BackRight }){
+      readySignals.addAll(Arrays.asList(module.getReadySignals()));
+    }
+    readySignals.addAll(Arrays.asList(m_GyroIO.getOdometrySignals()));
+    if(!readySignals.isEmpty()
+       && !BaseStatusSignal.waitForAll(SwerveConstants.deviceReadyTimeout, readySignals.toArray(new BaseStatusSignal[0])).isOK()){
+      DriverStation.reportWarning("Drive devices did not report before zeroing the modules", false);
+    }
+
+    m_FrontLeft.seedPositions(configurator, "Front left");
+    m_FrontRight.seedPositions(configurator, "Front right");
+    m_BackLeft.seedPositions(configurator, "Back left");
+    m_BackRight.seedPositions(configurator, "Back right");
+    configurator.awaitAll(SwerveConstants.configTimeout);
+    configurator.shutdown();
   }
 
   public void updateModulePositions(){
@@ -114,51 +254,170 @@ public class subsystem_DriveTrain extends SubsystemBase {
                           boolean isFieldRelative, 
                           boolean isOpenLoop){
     
-    zRotRadiansPerSecond = m_IsAutoOrient ? getAngularVelocity() : zRotRadiansPerSecond;
+    boolean isAutoOrient = m_IsAutoOrient;
     if(m_IsPark){
       xSpeedMetersPerSecond = 0.03 * Math.cos(25.0 * SwerveConstants.DEG_TO_RAD);
       ySpeedMetersPerSecond = 0.03 * Math.sin(25.0 * SwerveConstants.DEG_TO_RAD);
       zRotRadiansPerSecond = 0.0;
+      isAutoOrient = false;
     }
-    SmartDashboard.putNumber("X Speed", xSpeedMetersPerSecond);
-    SmartDashboard.putNumber("Y Speed", ySpeedMetersPerSecond);
-    SmartDashboard.putNumber("Z Rot", zRotRadiansPerSecond);
-    
-    SwerveModuleState[] moduleStates = SwerveConstants.kinematics.toSwerveModuleStates(
-      ChassisSpeeds.fromFieldRelativeSpeeds(
-                            xSpeedMetersPerSecond,
-                            ySpeedMetersPerSecond,
-                            zRotRadiansPerSecond,
-                            getPoseYaw()));
-
-    SwerveDriveKinematics.desaturateWheelSpeeds(moduleStates, SwerveConstants.maxSpeed * 4.0);
-    SwerveModuleState frontLeft = moduleStates[0];
-    SwerveModuleState frontRight = moduleStates[1];
-    SwerveModuleState backLeft = moduleStates[2];
-    SwerveModuleState backRight = moduleStates[3];
-    
-    // SmartDashboard.putNumber("FL Desired Angle", frontLeft.angle.getDegrees());
-    // SmartDashboard.putNumber("FR Desired Angle", frontRight.angle.getDegrees());
-    // SmartDashboard.putNumber("BL Desired Angle", backLeft.angle.getDegrees());
-    // SmartDashboard.putNumber("BR Desired Angle", backRight.angle.getDegrees());
-    SmartDashboard.putNumber("FL Desired Speed", frontLeft.speedMetersPerSecond);
-    SmartDashboard.putNumber("FR Desired Speed", frontRight.speedMetersPerSecond);
-    SmartDashboard.putNumber("BL Desired Speed", backLeft.speedMetersPerSecond);
-    SmartDashboard.putNumber("BR Desired Speed", backRight.speedMetersPerSecond);
-    
-    m_FrontLeft.setDesiredState(frontLeft, isOpenLoop);
-    m_FrontRight.setDesiredState(frontRight, isOpenLoop);
-    m_BackLeft.setDesiredState(backLeft, isOpenLoop);
-    m_BackRight.setDesiredState(backRight, isOpenLoop);
+    m_Telemetry.setCommandedSpeeds(xSpeedMetersPerSecond, ySpeedMetersPerSecond, zRotRadiansPerSecond);
+    drive(xSpeedMetersPerSecond, ySpeedMetersPerSecond, zRotRadiansPerSecond, isAutoOrient, SwerveConstants.maxSpeed * 4.0, isOpenLoop);
+  }
+
+  /* Field relative chassis speeds from a trajectory follower, limited to the auto max speed */
+  public void driveFieldRelative(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double zRotRadiansPerSecond){
+    drive(xSpeedMetersPerSecond, ySpeedMetersPerSecond, zRotRadiansPerSecond, false, AutoConstants.MaxSpeedMetersPerSecond, false);
+  }
+
+  /**
+   * Runs swerveDrive down to the module IOs for {@link frc.robot.WarmUp} while disabled, so the JIT compiles
+   * the real drive path. The IO outputs are gated off and the commands are not recorded until
+   * {@link #endWarmUp()}. Robot thread only.
+   */
+  public void warmUp(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double zRotRadiansPerSecond, boolean isOpenLoop){
+    if(!m_IsWarmingUp){
+      m_IsWarmingUp = true;
+      setOutputsEnabled(false);
+      m_Recorder.setMuted(DriveRecorder.kCommand, true);
+    }
+    // A latched auto orient would run the heading controller's profile and settle counter from here
+    boolean isAutoOrient = m_IsAutoOrient;
+    m_IsAutoOrient = false;
+    swerveDrive(xSpeedMetersPerSecond, ySpeedMetersPerSecond, zRotRadiansPerSecond, true, isOpenLoop);
+    m_IsAutoOrient = isAutoOrient;
+    if(SwerveConstants.useFastDriveLoop){
+      // The drive loop idles while disabled, run its math on this thread instead of handing it the target.
+      // It keeps resetting its own generator meanwhile, so this uses a separate one.
+      m_Target.set(null);
+      computeSetpoints(xSpeedMetersPerSecond, ySpeedMetersPerSecond, zRotRadiansPerSecond,
+                       SwerveConstants.maxSpeed * 4.0, SwerveConstants.driveLoopPeriod, m_WarmUpGenerator);
+      applySetpoints(isOpenLoop);
+    }
+  }
 
+  /* Clears everything the warm-up commanded so the first enabled loop starts from rest, then turns the outputs back on */
+  public void endWarmUp(){
+    if(!m_IsWarmingUp){
+      return;
+    }
+    if(SwerveConstants.useFastDriveLoop){
+      m_WarmUpGenerator.reset(0.0, 0.0, 0.0);
+    } else {
+      m_SetpointGenerator.reset(0.0, 0.0, 0.0);
+    }
+    m_Setpoints.fromChassisSpeeds(0.0, 0.0, 0.0);
+    synchronized(m_PublishedSetpoints){
+      m_PublishedSetpoints.copyFrom(m_Setpoints);
+    }
+    m_Telemetry.setCommandedSpeeds(0.0, 0.0, 0.0);
+    m_FrontLeft.resetCommandState();
+    m_FrontRight.resetCommandState();
+    m_BackLeft.resetCommandState();
+    m_BackRight.resetCommandState();
+    m_Recorder.setMuted(DriveRecorder.kCommand, false);
+    setOutputsEnabled(true);
+    m_IsWarmingUp = false;
+  }
+
+  private void setOutputsEnabled(boolean enabled){
+    m_FrontLeft.setOutputsEnabled(enabled);
+    m_FrontRight.setOutputsEnabled(enabled);
+    m_BackLeft.setOutputsEnabled(enabled);
+    m_BackRight.setOutputsEnabled(enabled);
   }
 
   public void setModuleStates(SwerveModuleState[] desiredStates){
-    SwerveDriveKinematics.desaturateWheelSpeeds(desiredStates, AutoConstants.MaxSpeedMetersPerSecond);
-    m_FrontLeft.setDesiredState(desiredStates[0], false);
-    m_FrontRight.setDesiredState(desiredStates[1], false);
-    m_BackLeft.setDesiredState(desiredStates[2], false);
-    m_BackRight.setDesiredState(desiredStates[3], false);
+    if(SwerveConstants.useFastDriveLoop){
+      // The fast loop only takes chassis targets, convert back and let it redo the module math at its rate
+      ChassisSpeeds speeds = ChassisSpeeds.fromRobotRelativeSpeeds(m_Kinematics.toChassisSpeeds(desiredStates), getPoseYaw());
+      m_Target.set(new DriveTarget(speeds, false, AutoConstants.MaxSpeedMetersPerSecond, false));
+      return;
+    }
+    // Back to chassis speeds, so these states get the same discretization and steer feedforward as the other drive paths
+    ChassisSpeeds speeds = m_Kinematics.toChassisSpeeds(desiredStates);
+    m_Setpoints.fromChassisSpeeds(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond,
+                                  SwerveConstants.useSecondOrderKinematics ? TimedRobot.kDefaultPeriod : 0.0);
+    m_Setpoints.desaturate(AutoConstants.MaxSpeedMetersPerSecond);
+    // Keep the generator continuous for the next driver or follower command
+    m_SetpointGenerator.reset(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+    applySetpoints(false);
+  }
+
+  /* Commands the modules directly in the robot loop, or hands the target to the fast drive loop when it is enabled */
+  private void drive(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double zRotRadiansPerSecond,
+                     boolean isAutoOrient, double maxSpeed, boolean isOpenLoop){
+    if(SwerveConstants.useFastDriveLoop){
+      m_Target.set(new DriveTarget(new ChassisSpeeds(xSpeedMetersPerSecond, ySpeedMetersPerSecond, zRotRadiansPerSecond),
+                                   isAutoOrient, maxSpeed, isOpenLoop));
+      return;
+    }
+    zRotRadiansPerSecond = isAutoOrient ? getAngularVelocity() : zRotRadiansPerSecond;
+    computeSetpoints(xSpeedMetersPerSecond, ySpeedMetersPerSecond, zRotRadiansPerSecond, maxSpeed, TimedRobot.kDefaultPeriod, m_SetpointGenerator);
+    applySetpoints(isOpenLoop);
+  }
+
+  /* Field relative speeds to module setpoints, through the setpoint generator when it is enabled */
+  private void computeSetpoints(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double zRotRadiansPerSecond,
+                                double maxSpeed, double dtSeconds, SwerveSetpointGenerator generator){
+    double robotAngle = getPoseYaw().getRadians();
+    double cos = Math.cos(robotAngle);
+    double sin = Math.sin(robotAngle);
+    double vx = xSpeedMetersPerSecond * cos + ySpeedMetersPerSecond * sin;
+    double vy = -xSpeedMetersPerSecond * sin + ySpeedMetersPerSecond * cos;
+    double omega = zRotRadiansPerSecond;
+    if(SwerveConstants.useSetpointGenerator){
+      generator.generate(vx, vy, omega, maxSpeed, dtSeconds);
+      vx = generator.getVX();
+      vy = generator.getVY();
+      omega = generator.getOmega();
+    }
+    // Same math as toSwerveModuleStates(fromRobotRelativeSpeeds(...)) but into preallocated buffers
+    m_Setpoints.fromChassisSpeeds(vx, vy, omega, SwerveConstants.useSecondOrderKinematics ? dtSeconds : 0.0);
+    m_Setpoints.desaturate(maxSpeed);
+  }
+
+  /* Runs on the DriveLoop notifier, turns the latest target into module commands with the freshest pose */
+  private void driveLoop(){
+    if(!m_DriveLoopStarted){
+      Threads.setCurrentThreadPriority(true, SwerveConstants.driveLoopPriority);
+      m_DriveLoopStarted = true;
+    }
+    if(DriverStation.isDisabled()){
+      // Never replay a target from before the robot was disabled
+      m_Target.set(null);
+      m_SetpointGenerator.reset(0.0, 0.0, 0.0);
+      return;
+    }
+    DriveTarget target = m_Target.get();
+    if(target == null || Timer.getFPGATimestamp() - target.timestamp > SwerveConstants.driveTargetTimeout){
+      return;
+    }
+    double omega = target.isAutoOrient && m_IsAutoOrient ? getAngularVelocity() : target.speeds.omegaRadiansPerSecond;
+    computeSetpoints(target.speeds.vxMetersPerSecond, target.speeds.vyMetersPerSecond, omega,
+                     target.maxSpeed, SwerveConstants.driveLoopPeriod, m_SetpointGenerator);
+    applySetpoints(target.isOpenLoop);
+  }
+
+  private void applySetpoints(boolean isOpenLoop){
+    // Telemetry is flushed by the robot loop, hand it a copy in case this runs on the drive loop thread
+    synchronized(m_PublishedSetpoints){
+      m_PublishedSetpoints.copyFrom(m_Setpoints);
+    }
+    m_FrontLeft.setDesiredState(m_Setpoints.speeds[0], m_Setpoints.anglesDegrees[0], m_Setpoints.angularVelocitiesDegPerSec[0], isOpenLoop);
+    m_FrontRight.setDesiredState(m_Setpoints.speeds[1], m_Setpoints.anglesDegrees[1], m_Setpoints.angularVelocitiesDegPerSec[1], isOpenLoop);
+    m_BackLeft.setDesiredState(m_Setpoints.speeds[2], m_Setpoints.anglesDegrees[2], m_Setpoints.angularVelocitiesDegPerSec[2], isOpenLoop);
+    m_BackRight.setDesiredState(m_Setpoints.speeds[3], m_Setpoints.anglesDegrees[3], m_Setpoints.angularVelocitiesDegPerSec[3], isOpenLoop);
+
+    m_CommandRecord[2] = m_FrontLeft.getDriveVoltage();
+    m_CommandRecord[5] = m_FrontRight.getDriveVoltage();
+    m_CommandRecord[8] = m_BackLeft.getDriveVoltage();
+    m_CommandRecord[11] = m_BackRight.getDriveVoltage();
+    for(int i = 0; i < ModuleSetpoints.kNumModules; i++){
+      m_CommandRecord[i * 3] = m_Setpoints.speeds[i];
+      m_CommandRecord[1 + i * 3] = m_Setpoints.anglesDegrees[i];
+    }
+    m_Recorder.record(DriveRecorder.kCommand, Timer.getFPGATimestamp(), m_CommandRecord);
   }
 
   public void changeThrottle(){
@@ -175,7 +434,11 @@ public class subsystem_DriveTrain extends SubsystemBase {
 
   public double setThrottle(double input){
     // SmartDashboard.putString("Throttle Type", m_Throttle.toString());
-    return m_Throttle == Throttle.LINEAR ? input : Math.signum(input) * (1.01 * Math.pow(input, 2) - 0.0202 * input + 0.0101);
+    return applyThrottle(m_Throttle, input);
+  }
+
+  public static double applyThrottle(Throttle throttle, double input){
+    return throttle == Throttle.LINEAR ? input : Math.signum(input) * (1.01 * Math.pow(input, 2) - 0.0202 * input + 0.0101);
   }
 
   // public Command toggleThrottleCommand(){
@@ -187,7 +450,7 @@ public class subsystem_DriveTrain extends SubsystemBase {
   }
 
   public void zeroGyro(){
-    m_Gyro.setYaw(0.0);
+    m_GyroIO.setYaw(0.0);
   }
 
   // public Command zeroGyroCommand(){
@@ -199,39 +462,67 @@ public class subsystem_DriveTrain extends SubsystemBase {
   }
 
   public void resetOdometry(Pose2d pose){
-    updateModulePositions();
-    m_PoseEstimator.resetPosition(m_Gyro.getRotation2d(), m_ModulePositions, pose);
+    m_PoseRecord[0] = pose.getX();
+    m_PoseRecord[1] = pose.getY();
+    m_PoseRecord[2] = pose.getRotation().getRadians();
+    m_Recorder.record(DriveRecorder.kReset, Timer.getFPGATimestamp(), m_PoseRecord);
+    // The odometry thread's latest sample, this loop's snapshot can be up to a loop older
+    m_OdometryThread.resetPosition(pose);
+  }
+
+  /* timestampSeconds is the FPGA time the frame was captured, the estimator replays odometry from there */
+  public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds, Vector<N3> stdDevs){
+    m_VisionRecord[0] = visionPose.getX();
+    m_VisionRecord[1] = visionPose.getY();
+    m_VisionRecord[2] = visionPose.getRotation().getRadians();
+    m_VisionRecord[3] = stdDevs.get(0, 0);
+    m_VisionRecord[4] = stdDevs.get(1, 0);
+    m_VisionRecord[5] = stdDevs.get(2, 0);
+    m_Recorder.record(DriveRecorder.kVision, timestampSeconds, m_VisionRecord);
+    m_OdometryLock.lock();
+    try{
+      m_PoseEstimator.addVisionMeasurement(visionPose, timestampSeconds, stdDevs);
+    } finally {
+      m_OdometryLock.unlock();
+    }
   }
 
   public Pose2d getPose(){
-    return m_PoseEstimator.getEstimatedPosition();
+    m_OdometryLock.lock();
+    try{
+      return m_PoseEstimator.getEstimatedPosition();
+    } finally {
+      m_OdometryLock.unlock();
+    }
   }
 
   public Rotation2d getYaw(){
-    double yaw = SwerveConstants.invertGyro ? 360.0 - m_Gyro.getYaw().getValueAsDouble() : m_Gyro.getYaw().getValueAsDouble();
+    double yaw = SwerveConstants.invertGyro ? 360.0 - m_GyroInputs.yawDegrees : m_GyroInputs.yawDegrees;
     return Rotation2d.fromDegrees(yaw);
   }
 
   public Rotation2d getPoseYaw(){
-    return m_PoseEstimator.getEstimatedPosition().getRotation();
-  }
-
-  public void resetModulesToAbsolute(){
-    m_FrontLeft.resetToAbsolute();
-    m_FrontRight.resetToAbsolute();
-    m_BackLeft.resetToAbsolute();
-    m_BackRight.resetToAbsolute();
+    return getPose().getRotation();
   }
 
-  public void setAutoOrient(boolean isOrientFront, boolean isOrientBack, double rotVelocity){
+  /**
+   * Front and back face the alliance's own headings, otherwise a held POV picks any {@link ORIENTATION}.
+   * Turning the rotation stick cancels orienting.
+   */
+  public void setAutoOrient(boolean isOrientFront, boolean isOrientBack, int pov, double rotVelocity){
     if((Math.abs(rotVelocity) <= ControllerConstants.deadband) && DriverStation.isTeleopEnabled()){
+      boolean isBlue = DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue) == DriverStation.Alliance.Blue;
+      ORIENTATION orientation = DPAD.fromPOV(pov);
       if(isOrientFront){
-        if(DriverStation.getAlliance().get() == DriverStation.Alliance.Blue){
-          m_DPAD = DPAD.value(ORIENTATION.RIGHT);
-        } else {
-          m_DPAD = DPAD.value(ORIENTATION.DOWN);
-          m_IsAutoOrient = true;
-        }
+        orientation = isBlue ? ORIENTATION.RIGHT : ORIENTATION.DOWN;
+      } else if(isOrientBack){
+        orientation = isBlue ? ORIENTATION.LEFT : ORIENTATION.FRONT;
+      }
+      int heading = DPAD.value(orientation);
+      if(orientation != ORIENTATION.NON_ORIENTED && (!m_IsAutoOrient || m_DPAD != heading)){
+        m_DPAD = heading;
+        m_HeadingReset = true;
+        m_IsAutoOrient = true;
       }
     } else {
       m_IsAutoOrient = false;
@@ -239,48 +530,48 @@ public class subsystem_DriveTrain extends SubsystemBase {
     }
   }
 
+  /* Rotation rate toward the DPAD heading, the profile's velocity plus a PID correction to the profile */
   public double getAngularVelocity(){
-    m_AutoOrientPID.setSetpoint(m_DPAD);
-    if(m_AutoOrientPID.atSetpoint()){
+    double yaw = getPoseYaw().getRadians();
+    if(m_HeadingReset){
+      m_HeadingReset = false;
+      // Start the profile at the rate the robot is already turning, so a snap mid-turn does not jerk
+      double yawRate = m_GyroInputs.yawRateDegPerSec * SwerveConstants.DEG_TO_RAD;
+      m_HeadingController.reset(yaw, SwerveConstants.invertGyro ? -yawRate : yawRate);
+      m_OrientCounter = 0;
+    }
+    double correction = m_HeadingController.calculate(yaw, m_DPAD * SwerveConstants.DEG_TO_RAD);
+    if(m_HeadingController.atGoal()){
       m_OrientCounter++;
-      if(m_OrientCounter >= 4){
+      if(m_OrientCounter >= SwerveConstants.headingSettleLoops){
         m_IsAutoOrient = false;
         m_DPAD = DPAD.value(ORIENTATION.NON_ORIENTED);
         m_OrientCounter = 0;
         return 0.0;
       }
+    } else {
+      m_OrientCounter = 0;
     }
-    return m_AutoOrientPID.calculate(m_PoseEstimator.getEstimatedPosition().getRotation().getDegrees());
+    return m_HeadingController.getSetpoint().velocity + correction;
   }
 
+  /* Copies a module's cached speed and angle into the telemetry batch, no CAN reads */
   public void print(int module){
     switch(module){
       case 0:
-        SmartDashboard.putNumber("FL Angle", m_FrontLeft.getState().angle.getDegrees());
-        // SmartDashboard.putNumber("FL CANcoder w/o Offset", m_FrontLeft.getCANCoder().getDegrees());
-        SmartDashboard.putNumber("FL Speed", m_FrontLeft.getState().speedMetersPerSecond);
-        // SmartDashboard.putNumber("FL Error Units: " + m_FrontLeft.getErrorCodeUnits(), m_FrontLeft.getErrorCodeVal());
+        m_Telemetry.setModuleState(0, m_FrontLeft.getVelocityMPS(), m_FrontLeft.getAngleDegrees());
         break;
       
       case 1:
-        SmartDashboard.putNumber("FR Angle", m_FrontRight.getState().angle.getDegrees());
-        // SmartDashboard.putNumber("FR CANcoder w/o Offset", m_FrontRight.getCANCoder().getDegrees());
-        SmartDashboard.putNumber("FR Speed", m_FrontRight.getState().speedMetersPerSecond);
-        // SmartDashboard.putNumber("FR Error Units: " + m_FrontRight.getErrorCodeUnits(), m_FrontRight.getErrorCodeVal());
+        m_Telemetry.setModuleState(1, m_FrontRight.getVelocityMPS(), m_FrontRight.getAngleDegrees());
         break;
       
       case 2:
-        SmartDashboard.putNumber("BL Angle", m_BackLeft.getState().angle.getDegrees());
-        // SmartDashboard.putNumber("BL CANcoder w/o Offset", m_BackLeft.getCANCoder().getDegrees());
-        SmartDashboard.putNumber("BL Speed", m_BackLeft.getState().speedMetersPerSecond);
-        // SmartDashboard.putNumber("BL Error Units: " + m_BackLeft.getErrorCodeUnits(), m_BackLeft.getErrorCodeVal());
+        m_Telemetry.setModuleState(2, m_BackLeft.getVelocityMPS(), m_BackLeft.getAngleDegrees());
         break;
       
       case 3:
-        SmartDashboard.putNumber("BR Angle", m_BackRight.getState().angle.getDegrees());
-        // SmartDashboard.putNumber("BR CANcoder w/o Offset", m_BackRight.getCANCoder().getDegrees());
-        SmartDashboard.putNumber("BR Speed", m_BackRight.getState().speedMetersPerSecond);
-        // SmartDashboard.putNumber("BR Error Units: " + m_BackRight.getErrorCodeUnits(), m_BackRight.getErrorCodeVal());
+        m_Telemetry.setModuleState(3, m_BackRight.getVelocityMPS(), m_BackRight.getAngleDegrees());
         break;
       
       default:
@@ -297,17 +588,56 @@ public class subsystem_DriveTrain extends SubsystemBase {
   }
 
   @Override
-  public void periodic() {
+  protected void profiledPeriodic() {
     // This method will be called once per scheduler run
-    SmartDashboard.putNumber("Est X Position", m_PoseEstimator.getEstimatedPosition().getX());
-    SmartDashboard.putNumber("Est Y Position", m_PoseEstimator.getEstimatedPosition().getY());
-    SmartDashboard.putNumber("Est Pose Yaw", m_PoseEstimator.getEstimatedPosition().getRotation().getDegrees());
-    SmartDashboard.putBoolean("SLOW MODE", m_Throttle == Throttle.LINEAR);
+    // Every input is read once here, the drive logic and commands after this only see the snapshots.
+    // refreshAll() only copies the last received frames and does not wait on the bus.
+    if(m_InputSignals.length > 0){
+      BaseStatusSignal.refreshAll(m_InputSignals);
+    }
+    m_FrontLeft.updateInputs();
+    m_FrontRight.updateInputs();
+    m_BackLeft.updateInputs();
+    m_BackRight.updateInputs();
+    m_GyroIO.updateInputs(m_GyroInputs);
+    if(!SwerveConstants.useFastDriveLoop && DriverStation.isDisabled()){
+      // The modules stop when disabled, the first enabled loop ramps up from rest
+      m_SetpointGenerator.reset(0.0, 0.0, 0.0);
+    }
+    Pose2d pose = getPose();
+    m_Telemetry.setPose(pose);
+    m_PoseRecord[0] = pose.getX();
+    m_PoseRecord[1] = pose.getY();
+    m_PoseRecord[2] = pose.getRotation().getRadians();
+    m_Recorder.record(DriveRecorder.kPose, Timer.getFPGATimestamp(), m_PoseRecord);
+    m_Telemetry.setSlowMode(m_Throttle == Throttle.LINEAR);
+    synchronized(m_PublishedSetpoints){
+      m_Telemetry.setDesiredStates(m_PublishedSetpoints);
+    }
     print(0);
     print(1);
     print(2);
     print(3);
-    m_PoseEstimator.update(m_Gyro.getRotation2d(), m_ModulePositions);
-    updateModulePositions();
+    m_Telemetry.setOdometryFailures(m_OdometryThread.getFailedUpdates());
+    LoopProfiler.start(kTelemetryStage);
+    m_Telemetry.flush();
+    LoopProfiler.stop(kTelemetryStage);
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    // This method will be called once per scheduler run during simulation
+    double dt = TimedRobot.kDefaultPeriod;
+    m_FrontLeft.simulationPeriodic(dt);
+    m_FrontRight.simulationPeriodic(dt);
+    m_BackLeft.simulationPeriodic(dt);
+    m_BackRight.simulationPeriodic(dt);
+
+    // No physical gyro, integrate the yaw rate implied by the simulated module states
+    ChassisSpeeds speeds = SwerveConstants.kinematics.toChassisSpeeds(m_FrontLeft.getState(),
+                                                                      m_FrontRight.getState(),
+                                                                      m_BackLeft.getState(),
+                                                                      m_BackRight.getState());
+    m_GyroIO.simulationPeriodic(speeds.omegaRadiansPerSecond, dt);
   }
 }
@@ -0,0 +1,157 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonCamera;
+import org.photonvision.PhotonPoseEstimator;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.VisionMeasurement;
+import frc.robot.Constants.VisionConstants;
+
+public class subsystem_Vision extends ProfiledSubsystem {
+  /** Creates a new subsystem_Vision. */
+  private PhotonCamera[] m_Cameras;
+  private PhotonPoseEstimator[] m_PoseEstimators;
+  private double[] m_LastResultTimestamps;
+  private Notifier m_Notifier;
+  private subsystem_DriveTrain m_DriveTrain;
+
+  /* Filled by the vision thread, drained by periodic(), lock-free in both directions */
+  private ConcurrentLinkedQueue<VisionMeasurement> m_Measurements;
+  private int m_ConsecutiveJumps;
+
+  public subsystem_Vision(subsystem_DriveTrain driveTrain) {
+    m_DriveTrain = driveTrain;
+    int numCameras = VisionConstants.kCameraNames.length;
+    m_Cameras = new PhotonCamera[numCameras];
+    m_PoseEstimators = new PhotonPoseEstimator[numCameras];
+    m_LastResultTimestamps = new double[numCameras];
+    for(int i = 0; i < numCameras; i++){
+      m_Cameras[i] = new PhotonCamera(VisionConstants.kCameraNames[i]);
+      m_PoseEstimators[i] = new PhotonPoseEstimator(VisionConstants.kTagLayout,
+                                                    PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
+                                                    m_Cameras[i],
+                                                    VisionConstants.kRobotToCams[i]);
+      m_PoseEstimators[i].setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
+    }
+    m_Measurements = new ConcurrentLinkedQueue<>();
+
+    // Camera polling and pose solving run on the notifier thread, never in the 20 ms loop
+    m_Notifier = new Notifier(this::pollCameras);
+    m_Notifier.setName("Vision");
+    m_Notifier.startPeriodic(VisionConstants.kPollPeriod);
+  }
+
+  private void pollCameras(){
+    for(int i = 0; i < m_Cameras.length; i++){
+      PhotonPipelineResult result = m_Cameras[i].getLatestResult();
+      double timestamp = result.getTimestampSeconds();
+      if(timestamp == m_LastResultTimestamps[i] || !result.hasTargets()){
+        continue;
+      }
+      m_LastResultTimestamps[i] = timestamp;
+      Optional<EstimatedRobotPose> estimate = m_PoseEstimators[i].update(result);
+      if(estimate.isPresent()){
+        VisionMeasurement measurement = toMeasurement(estimate.get());
+        if(measurement != null){
+          m_Measurements.offer(measurement);
+        }
+      }
+    }
+  }
+
+  /* Rejects estimates that cannot be right and scales trust by tag count, distance and ambiguity, null if rejected */
+  private VisionMeasurement toMeasurement(EstimatedRobotPose estimate){
+    Pose3d pose = estimate.estimatedPose;
+    // The LOWEST_AMBIGUITY fallback solves from one tag but still lists every visible target as used
+    boolean isMultiTag = estimate.strategy == PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR;
+    PhotonTrackedTarget singleTag = isMultiTag ? null : lowestAmbiguity(estimate);
+    int tagCount = isMultiTag ? estimate.targetsUsed.size() : (singleTag != null ? 1 : 0);
+    if(tagCount == 0
+       || Math.abs(pose.getZ()) > VisionConstants.kMaxHeight
+       || pose.getX() < -VisionConstants.kFieldMargin
+       || pose.getX() > VisionConstants.kTagLayout.getFieldLength() + VisionConstants.kFieldMargin
+       || pose.getY() < -VisionConstants.kFieldMargin
+       || pose.getY() > VisionConstants.kTagLayout.getFieldWidth() + VisionConstants.kFieldMargin){
+      return null;
+    }
+
+    Pose2d pose2d = pose.toPose2d();
+    double totalDistance = 0.0;
+    int knownTags = 0;
+    double maxAmbiguity = 0.0;
+    for(PhotonTrackedTarget target : estimate.targetsUsed){
+      if(!isMultiTag && target != singleTag){
+        continue;
+      }
+      Optional<Pose3d> tagPose = VisionConstants.kTagLayout.getTagPose(target.getFiducialId());
+      if(tagPose.isPresent()){
+        totalDistance += tagPose.get().toPose2d().getTranslation().getDistance(pose2d.getTranslation());
+        knownTags++;
+      }
+      maxAmbiguity = Math.max(maxAmbiguity, target.getPoseAmbiguity());
+    }
+    if(knownTags == 0){
+      return null;
+    }
+    double averageDistance = totalDistance / knownTags;
+
+    Vector<N3> stdDevs;
+    if(tagCount == 1){
+      // A single tag can flip between two solutions, only trust it close up and unambiguous
+      if(averageDistance > VisionConstants.kMaxSingleTagDistance || maxAmbiguity > VisionConstants.kMaxAmbiguity){
+        return null;
+      }
+      stdDevs = VisionConstants.kSingleTagStdDevs.times(1.0 + maxAmbiguity / VisionConstants.kMaxAmbiguity);
+    } else {
+      stdDevs = VisionConstants.kMultiTagStdDevs.div(Math.sqrt(tagCount - 1.0));
+    }
+    stdDevs = stdDevs.times(1.0 + averageDistance * averageDistance / VisionConstants.kDistanceScale);
+    return new VisionMeasurement(pose2d, estimate.timestampSeconds, stdDevs, tagCount);
+  }
+
+  /* The target LOWEST_AMBIGUITY solves from, PhotonVision reports -1 when the ambiguity is unknown */
+  private static PhotonTrackedTarget lowestAmbiguity(EstimatedRobotPose estimate){
+    PhotonTrackedTarget lowest = null;
+    for(PhotonTrackedTarget target : estimate.targetsUsed){
+      double ambiguity = target.getPoseAmbiguity();
+      if(ambiguity != -1 && (lowest == null || ambiguity < lowest.getPoseAmbiguity())){
+        lowest = target;
+      }
+    }
+    return lowest;
+  }
+
+  @Override
+  protected void profiledPeriodic() {
+    // This method will be called once per scheduler run
+    VisionMeasurement measurement;
+    while((measurement = m_Measurements.poll()) != null){
+      double jump = measurement.pose.getTranslation().getDistance(m_DriveTrain.getPose().getTranslation());
+      if(jump > VisionConstants.kMaxPoseJump){
+        // Keep rejecting jumps unless multi-tag keeps insisting, then the odometry is what is wrong
+        m_ConsecutiveJumps++;
+        if(measurement.tagCount < 2 || m_ConsecutiveJumps < VisionConstants.kMaxConsecutiveJumps){
+          continue;
+        }
+      }
+      m_ConsecutiveJumps = 0;
+      // Capture timestamp, so the estimator applies the measurement where the robot was when the frame was taken
+      m_DriveTrain.addVisionMeasurement(measurement.pose, measurement.timestampSeconds, measurement.stdDevs);
+    }
+  }
+}
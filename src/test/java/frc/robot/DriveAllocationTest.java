@@ -0,0 +1,104 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.commands.command_DriveTeleop;
+import frc.robot.subsystems.subsystem_DriveTrain;
+
+/**
+ * Steady state loops of the drive path on the sim IOs, measured with the allocated bytes counter of the
+ * calling thread. GC pauses on the roboRIO show up as loop overruns, so the budget is zero bytes per loop.
+ * Every loop is warmed up first so the measured loops run compiled code. The teleop loop is what the
+ * scheduler runs while teleop is enabled: the command, then the drivetrain's periodic with the input
+ * refresh, telemetry flush, recorder writes and pose read.
+ */
+class DriveAllocationTest {
+    private static final int kWarmupLoops = 20000;
+    private static final int kMeasuredLoops = 1000;
+    // Anything allocated every loop is at least 16 bytes, this only leaves room for a rare lock queue node
+    // when the odometry thread happens to hold the odometry lock
+    private static final double kMaxBytesPerLoop = 1.0;
+
+    private double m_Phase;
+
+    @BeforeAll
+    static void initializeHAL(){
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @Test
+    void teleopLoopStaysWithinBudget(){
+        DriverStationSim.setAutonomous(false);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+        subsystem_DriveTrain driveTrain = new subsystem_DriveTrain(new ModuleIO[]{ new ModuleIOSim(), new ModuleIOSim(),
+                                                                                   new ModuleIOSim(), new ModuleIOSim() },
+                                                                   new GyroIOSim());
+        // Alternates between turning with the stick and auto orienting to the front and back headings
+        command_DriveTeleop teleop = new command_DriveTeleop(driveTrain,
+                                                             () -> 0.8 * Math.cos(m_Phase),
+                                                             () -> 0.8 * Math.sin(m_Phase),
+                                                             () -> isTurning() ? 0.5 * Math.sin(2.0 * m_Phase) : 0.0,
+                                                             () -> !isTurning() && Math.sin(0.25 * m_Phase) > 0.0,
+                                                             () -> !isTurning() && Math.sin(0.25 * m_Phase) <= 0.0,
+                                                             () -> -1,
+                                                             () -> true,
+                                                             () -> false);
+        try{
+            assertWithinBudget("command_DriveTeleop.execute and subsystem_DriveTrain.periodic", () -> {
+                m_Phase += 0.01;
+                teleop.execute();
+                driveTrain.periodic();
+            });
+        } finally {
+            driveTrain.close();
+            CommandScheduler.getInstance().unregisterAllSubsystems();
+            DriverStationSim.setEnabled(false);
+            DriverStationSim.notifyNewData();
+        }
+    }
+
+    @Test
+    void moduleLoopStaysWithinBudget(){
+        SwerveModule module = new SwerveModule(new ModuleIOSim());
+        assertWithinBudget("SwerveModule inputs and outputs", () -> {
+            m_Phase += 0.01;
+            module.updateInputs();
+            module.getOdometryPosition();
+            module.setDesiredState(2.0 * Math.sin(m_Phase), 90.0 * Math.cos(m_Phase), 30.0, false);
+        });
+    }
+
+    private boolean isTurning(){
+        return Math.cos(0.5 * m_Phase) > 0.0;
+    }
+
+    private static void assertWithinBudget(String name, Runnable loop){
+        ThreadMXBean threads = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        for(int i = 0; i < kWarmupLoops; i++){
+            loop.run();
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < kMeasuredLoops; i++){
+            loop.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < kMaxBytesPerLoop * kMeasuredLoops,
+                   name + " allocated " + allocated + " bytes over " + kMeasuredLoops + " loops");
+    }
+}
@@ -0,0 +1,113 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.commands.command_DriveAuton;
+import frc.robot.subsystems.subsystem_DriveTrain;
+
+/**
+ * The drivetrain end to end on the sim IOs: commands through the CommandScheduler, module physics in
+ * simulationPeriodic, and the pose from the odometry thread. The clock is paused and stepped one loop at a
+ * time with SimHooks, the odometry thread samples on the same simulated clock, so every run is identical
+ * and takes no wall clock time.
+ */
+class DriveSimulationTest {
+    private static final double kPositionTolerance = 0.15; // meters
+    private static final double kHeadingTolerance = 0.15;  // radians
+
+    private subsystem_DriveTrain m_DriveTrain;
+
+    @BeforeAll
+    static void initializeHAL(){
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @BeforeEach
+    void setUp(){
+        SimHooks.pauseTiming();
+        m_DriveTrain = new subsystem_DriveTrain(new ModuleIO[]{ new ModuleIOSim(), new ModuleIOSim(),
+                                                                new ModuleIOSim(), new ModuleIOSim() },
+                                                new GyroIOSim());
+    }
+
+    @AfterEach
+    void tearDown(){
+        CommandScheduler.getInstance().cancelAll();
+        CommandScheduler.getInstance().unregisterAllSubsystems();
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+        m_DriveTrain.close();
+        SimHooks.resumeTiming();
+    }
+
+    @Test
+    void swerveDriveMovesAndTurns(){
+        enable(false);
+
+        run(Commands.run(() -> m_DriveTrain.swerveDrive(1.0, 0.0, 0.0, false, false), m_DriveTrain), 1.0);
+        Pose2d driven = m_DriveTrain.getPose();
+        assertTrue(driven.getX() > 0.5, "x after driving forward: " + driven.getX());
+        assertEquals(0.0, driven.getY(), kPositionTolerance);
+        assertEquals(0.0, driven.getRotation().getRadians(), kHeadingTolerance);
+
+        run(Commands.run(() -> m_DriveTrain.swerveDrive(0.0, 0.0, 1.0, false, false), m_DriveTrain), 1.0);
+        Pose2d turned = m_DriveTrain.getPose();
+        assertTrue(turned.getRotation().getRadians() > 0.5, "heading after turning left: " + turned.getRotation().getRadians());
+        assertEquals(turned.getRotation().getRadians(), m_DriveTrain.getYaw().getRadians(), kHeadingTolerance);
+    }
+
+    @Test
+    void autonFollowsUniformTrajectory(){
+        enable(true);
+
+        UniformTrajectory trajectory = UniformTrajectory.fromPolyline(new double[]{ 2.0, 3.0, 3.5 }, new double[]{ 1.0, 1.0, 1.5 },
+                                                                      0.0, Math.PI / 4.0,
+                                                                      1.0, 1.0, 2.0, UniformTrajectory.kDefaultDt);
+        Command auton = new command_DriveAuton(m_DriveTrain, () -> true, trajectory);
+        assertFalse(run(auton, trajectory.getTotalTimeSeconds() + 0.5), "auton did not finish");
+
+        TrajectorySample end = new TrajectorySample();
+        trajectory.sample(trajectory.getTotalTimeSeconds(), end);
+        Pose2d pose = m_DriveTrain.getPose();
+        assertEquals(end.xMeters, pose.getX(), kPositionTolerance);
+        assertEquals(end.yMeters, pose.getY(), kPositionTolerance);
+        assertEquals(0.0, MathUtil.angleModulus(end.headingRadians - pose.getRotation().getRadians()), kHeadingTolerance);
+    }
+
+    private static void enable(boolean autonomous){
+        DriverStationSim.setAutonomous(autonomous);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+    }
+
+    /* Schedules the command and runs the scheduler for the given time, true if the command was still running */
+    private static boolean run(Command command, double seconds){
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        scheduler.schedule(command);
+        int loops = (int)Math.ceil(seconds / TimedRobot.kDefaultPeriod);
+        for(int i = 0; i < loops; i++){
+            DriverStationSim.notifyNewData();
+            scheduler.run();
+            SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+        }
+        boolean running = command.isScheduled();
+        command.cancel();
+        return running;
+    }
+}